@@ -4,10 +4,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EntityScan("com.example.v2exclone.entity")
 @EnableJpaRepositories("com.example.v2exclone.repository")
+@EnableScheduling
 public class V2exCloneApplication {
 
     public static void main(String[] args) {
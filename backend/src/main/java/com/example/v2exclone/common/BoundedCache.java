@@ -0,0 +1,114 @@
+package com.example.v2exclone.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 容量有限的进程内缓存
+ * 基于Caffeine，读写都不加全局锁；超出容量时按访问频率和时间淘汰，条目写入超过ttl后视为过期，
+ * 同时统计命中、未命中和淘汰次数
+ */
+public class BoundedCache<K, V> {
+
+    /**
+     * @param ttlNanos 写入时指定的存活时间，0表示不过期
+     */
+    private record Entry<V>(V value, long ttlNanos) {
+    }
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Cache<K, Entry<V>> entries;
+
+    /**
+     * @param maxSize 最大条目数
+     * @param ttlMillis 写入后的存活时间，0表示不过期
+     */
+    public BoundedCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<K, Entry<V>>() {
+                    @Override
+                    public long expireAfterCreate(K key, Entry<V> entry, long currentTime) {
+                        return entry.ttlNanos() > 0 ? entry.ttlNanos() : Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(K key, Entry<V> entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(K key, Entry<V> entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.getIfPresent(key);
+        return entry != null ? entry.value() : null;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlMillis);
+    }
+
+    /**
+     * 写入条目并指定存活时间
+     * @param ttlMillis 存活时间，0表示不过期
+     */
+    public void put(K key, V value, long ttlMillis) {
+        entries.put(key, new Entry<>(value, ttlMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(ttlMillis) : 0));
+    }
+
+    public void remove(K key) {
+        entries.invalidate(key);
+    }
+
+    /**
+     * 删除所有key满足条件的条目
+     */
+    public void removeIf(Predicate<K> predicate) {
+        entries.asMap().keySet().removeIf(predicate);
+    }
+
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * 清理已过期的条目
+     */
+    public void cleanUp() {
+        entries.cleanUp();
+    }
+
+    public int size() {
+        return (int) entries.estimatedSize();
+    }
+
+    public long getHits() {
+        return entries.stats().hitCount();
+    }
+
+    public long getMisses() {
+        return entries.stats().missCount();
+    }
+
+    public long getEvictions() {
+        return entries.stats().evictionCount();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+}
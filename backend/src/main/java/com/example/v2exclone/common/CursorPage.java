@@ -0,0 +1,78 @@
+package com.example.v2exclone.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> content;
+
+    /**
+     * 每页大小
+     */
+    private int size;
+
+    /**
+     * 下一页游标，没有更多数据时为null
+     */
+    private String nextCursor;
+
+    /**
+     * 上一页游标，已经是第一页时为null
+     */
+    private String prevCursor;
+
+    /**
+     * 根据多取一行的查询结果组装游标分页
+     * @param rows 查询结果，按查询方向排序，最多size+1行
+     * @param size 每页大小
+     * @param position 本次请求的游标，第一页为null
+     * @param createdAt 取行的创建时间
+     * @param id 取行的ID
+     * @param mapper 行到DTO的转换
+     */
+    public static <R, T> CursorPage<T> of(List<R> rows, int size, PageCursor position,
+                                          Function<R, LocalDateTime> createdAt, Function<R, Long> id,
+                                          Function<R, T> mapper) {
+        boolean hasMore = rows.size() > size;
+        List<R> page = new ArrayList<>(hasMore ? rows.subList(0, size) : rows);
+        boolean backward = position != null && position.backward();
+        if (backward) {
+            // 向前翻页的查询是反向排序的，这里恢复成展示顺序
+            Collections.reverse(page);
+        }
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!page.isEmpty()) {
+            R first = page.get(0);
+            R last = page.get(page.size() - 1);
+            if (backward) {
+                prevCursor = hasMore ? PageCursor.before(createdAt.apply(first), id.apply(first)).encode() : null;
+                nextCursor = PageCursor.after(createdAt.apply(last), id.apply(last)).encode();
+            } else {
+                nextCursor = hasMore ? PageCursor.after(createdAt.apply(last), id.apply(last)).encode() : null;
+                prevCursor = position != null ? PageCursor.before(createdAt.apply(first), id.apply(first)).encode() : null;
+            }
+        }
+
+        List<T> content = page.stream().map(mapper).toList();
+        return new CursorPage<>(content, size, nextCursor, prevCursor);
+    }
+}
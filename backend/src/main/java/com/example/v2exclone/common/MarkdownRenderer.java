@@ -0,0 +1,489 @@
+package com.example.v2exclone.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown转HTML（常用子集）
+ * 支持标题、段落（单个换行保留为换行）、引用、有序/无序列表、围栏代码块、分隔线，
+ * 以及行内代码、粗体、斜体、删除线、链接、图片和裸链接。
+ * 输出本身即是安全的：所有文本都经过HTML转义，原始HTML不会透传，只会生成白名单内的标签，
+ * 链接只允许http/https/mailto和站内相对路径，因此不需要再单独做一遍清洗。
+ * 渲染规则有任何变化都要增加VERSION，已保存的HTML会按新版本重新渲染
+ */
+public final class MarkdownRenderer {
+
+    /**
+     * 渲染器版本，与结果一起保存
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * 引用和行内标记的最大嵌套层数，超出部分按纯文本输出
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private static final Pattern HEADING = Pattern.compile("^(#{1,6})\\s+(.*?)\\s*#*\\s*$");
+    private static final Pattern RULE = Pattern.compile("^ {0,3}([-*_])( *\\1){2,} *$");
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(```+|~~~+)\\s*([A-Za-z0-9_+#.-]*).*$");
+    private static final Pattern BULLET_ITEM = Pattern.compile("^ {0,3}[-*+]\\s+(.*)$");
+    private static final Pattern ORDERED_ITEM = Pattern.compile("^ {0,3}(\\d{1,9})[.)]\\s+(.*)$");
+    private static final Pattern QUOTE = Pattern.compile("^ {0,3}> ?(.*)$");
+    private static final Pattern AUTOLINK = Pattern.compile("^(https?://[^\\s<>\"'`\\\\]+)");
+
+    /**
+     * 链接文字和地址的最大查找长度，保证病态输入下的耗时与文本长度成线性关系
+     */
+    private static final int MAX_LABEL_LENGTH = 1000;
+    private static final int MAX_URL_LENGTH = 2048;
+
+    private static final String LINK_ATTRIBUTES = " rel=\"nofollow noopener noreferrer\" target=\"_blank\"";
+
+    private MarkdownRenderer() {
+    }
+
+    /**
+     * 渲染Markdown
+     * @param markdown 原文，为null时返回null
+     */
+    public static String render(String markdown) {
+        if (markdown == null) {
+            return null;
+        }
+        String normalized = markdown.replace("\r\n", "\n").replace('\r', '\n');
+        StringBuilder html = new StringBuilder(normalized.length() + normalized.length() / 4);
+        renderBlocks(List.of(normalized.split("\n", -1)), html, 0);
+        return html.toString();
+    }
+
+    private static void renderBlocks(List<String> lines, StringBuilder html, int depth) {
+        int i = 0;
+        while (i < lines.size()) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                i++;
+                continue;
+            }
+
+            Matcher fence = FENCE.matcher(line);
+            if (fence.matches()) {
+                i = renderCodeBlock(lines, i, fence.group(1), fence.group(2), html);
+                continue;
+            }
+            Matcher heading = HEADING.matcher(line);
+            if (heading.matches()) {
+                int level = heading.group(1).length();
+                html.append("<h").append(level).append('>');
+                renderInline(heading.group(2), html, depth);
+                html.append("</h").append(level).append(">\n");
+                i++;
+                continue;
+            }
+            if (RULE.matcher(line).matches()) {
+                html.append("<hr>\n");
+                i++;
+                continue;
+            }
+            if (QUOTE.matcher(line).matches()) {
+                List<String> quoted = new ArrayList<>();
+                while (i < lines.size()) {
+                    Matcher quote = QUOTE.matcher(lines.get(i));
+                    if (!quote.matches()) {
+                        break;
+                    }
+                    quoted.add(quote.group(1));
+                    i++;
+                }
+                if (depth < MAX_DEPTH) {
+                    html.append("<blockquote>\n");
+                    renderBlocks(quoted, html, depth + 1);
+                    html.append("</blockquote>\n");
+                } else {
+                    renderParagraph(quoted, html, depth);
+                }
+                continue;
+            }
+            if (BULLET_ITEM.matcher(line).matches() || ORDERED_ITEM.matcher(line).matches()) {
+                i = renderList(lines, i, html, depth);
+                continue;
+            }
+
+            List<String> paragraph = new ArrayList<>();
+            while (i < lines.size() && !lines.get(i).isBlank() && (paragraph.isEmpty() || !startsBlock(lines.get(i)))) {
+                paragraph.add(lines.get(i));
+                i++;
+            }
+            renderParagraph(paragraph, html, depth);
+        }
+    }
+
+    private static boolean startsBlock(String line) {
+        return FENCE.matcher(line).matches()
+                || HEADING.matcher(line).matches()
+                || RULE.matcher(line).matches()
+                || QUOTE.matcher(line).matches()
+                || BULLET_ITEM.matcher(line).matches()
+                || ORDERED_ITEM.matcher(line).matches();
+    }
+
+    private static void renderParagraph(List<String> lines, StringBuilder html, int depth) {
+        html.append("<p>");
+        for (int i = 0; i < lines.size(); i++) {
+            if (i > 0) {
+                html.append("<br>\n");
+            }
+            renderInline(lines.get(i).strip(), html, depth);
+        }
+        html.append("</p>\n");
+    }
+
+    /**
+     * 围栏代码块，没有闭合时延续到末尾
+     * @return 代码块之后的行号
+     */
+    private static int renderCodeBlock(List<String> lines, int start, String marker, String language, StringBuilder html) {
+        html.append("<pre><code");
+        if (!language.isEmpty()) {
+            html.append(" class=\"language-");
+            escape(language.toLowerCase(Locale.ROOT), html);
+            html.append('"');
+        }
+        html.append('>');
+        int i = start + 1;
+        while (i < lines.size()) {
+            String line = lines.get(i);
+            if (line.strip().startsWith(marker) && line.strip().replace(marker.substring(0, 1), "").isEmpty()) {
+                i++;
+                break;
+            }
+            escape(line, html);
+            html.append('\n');
+            i++;
+        }
+        html.append("</code></pre>\n");
+        return i;
+    }
+
+    /**
+     * 连续的同类列表项组成一个列表；缩进的行和紧跟的非空行并入上一项
+     * @return 列表之后的行号
+     */
+    private static int renderList(List<String> lines, int start, StringBuilder html, int depth) {
+        boolean ordered = !BULLET_ITEM.matcher(lines.get(start)).matches();
+        Pattern itemPattern = ordered ? ORDERED_ITEM : BULLET_ITEM;
+        List<List<String>> items = new ArrayList<>();
+        int i = start;
+        while (i < lines.size()) {
+            String line = lines.get(i);
+            Matcher item = itemPattern.matcher(line);
+            if (item.matches()) {
+                List<String> itemLines = new ArrayList<>();
+                itemLines.add(item.group(ordered ? 2 : 1));
+                items.add(itemLines);
+            } else if (!line.isBlank() && !startsBlock(line)) {
+                items.get(items.size() - 1).add(line.strip());
+            } else {
+                break;
+            }
+            i++;
+        }
+
+        if (ordered) {
+            Matcher first = ORDERED_ITEM.matcher(lines.get(start));
+            first.matches();
+            int startNumber = Integer.parseInt(first.group(1));
+            html.append(startNumber == 1 ? "<ol>\n" : "<ol start=\"" + startNumber + "\">\n");
+        } else {
+            html.append("<ul>\n");
+        }
+        for (List<String> itemLines : items) {
+            html.append("<li>");
+            for (int j = 0; j < itemLines.size(); j++) {
+                if (j > 0) {
+                    html.append("<br>\n");
+                }
+                renderInline(itemLines.get(j), html, depth);
+            }
+            html.append("</li>\n");
+        }
+        html.append(ordered ? "</ol>\n" : "</ul>\n");
+        return i;
+    }
+
+    /**
+     * 行内标记
+     * 找不到闭合标记的定界符按原样输出；每种定界符向后查找失败一次后不再查找，避免病态输入下的二次方耗时
+     */
+    private static void renderInline(String text, StringBuilder html, int depth) {
+        boolean[] unmatched = new boolean[Delimiter.values().length];
+        // 下一个')'的位置缓存，扫描位置只增不减，整行最多查找一遍
+        int[] nextParen = {-1};
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+
+            if (c == '\\' && i + 1 < text.length() && isEscapable(text.charAt(i + 1))) {
+                escape(text.charAt(i + 1), html);
+                i += 2;
+                continue;
+            }
+            if (c == '`') {
+                int run = countRun(text, i, '`');
+                String ticks = text.substring(i, i + run);
+                int close = text.indexOf(ticks, i + run);
+                if (close > 0) {
+                    html.append("<code>");
+                    escape(text.substring(i + run, close).strip(), html);
+                    html.append("</code>");
+                    i = close + run;
+                } else {
+                    html.append(ticks);
+                    i += run;
+                }
+                continue;
+            }
+            if (c == '!' && i + 1 < text.length() && text.charAt(i + 1) == '[') {
+                int end = renderLink(text, i + 1, html, depth, true, nextParen);
+                if (end > 0) {
+                    i = end;
+                    continue;
+                }
+            }
+            if (c == '[') {
+                int end = renderLink(text, i, html, depth, false, nextParen);
+                if (end > 0) {
+                    i = end;
+                    continue;
+                }
+            }
+            if ((c == 'h' || c == 'H') && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))) {
+                Matcher autolink = AUTOLINK.matcher(text).region(i, text.length());
+                if (autolink.lookingAt()) {
+                    String url = trimTrailingPunctuation(autolink.group(1));
+                    appendAnchor(url, html);
+                    escape(url, html);
+                    html.append("</a>");
+                    i += url.length();
+                    continue;
+                }
+            }
+
+            Delimiter delimiter = depth < MAX_DEPTH ? Delimiter.at(text, i) : null;
+            if (delimiter != null && !unmatched[delimiter.ordinal()]) {
+                int contentStart = i + delimiter.marker.length();
+                int close = findClosing(text, contentStart, delimiter);
+                if (close > contentStart) {
+                    html.append('<').append(delimiter.tag).append('>');
+                    renderInline(text.substring(contentStart, close), html, depth + 1);
+                    html.append("</").append(delimiter.tag).append('>');
+                    i = close + delimiter.marker.length();
+                    continue;
+                }
+                if (close < 0) {
+                    unmatched[delimiter.ordinal()] = true;
+                }
+            }
+            if (delimiter != null) {
+                escape(delimiter.marker, html);
+                i += delimiter.marker.length();
+                continue;
+            }
+            escape(c, html);
+            i++;
+        }
+    }
+
+    /**
+     * 查找闭合定界符：内容不能以空白开头或结尾，跳过反斜杠转义和行内代码
+     * @return 闭合位置，内容为空时返回起始位置，找不到时返回-1
+     */
+    private static int findClosing(String text, int from, Delimiter delimiter) {
+        if (from >= text.length() || Character.isWhitespace(text.charAt(from))) {
+            return from;
+        }
+        int i = from;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '`') {
+                int run = countRun(text, i, '`');
+                int close = text.indexOf(text.substring(i, i + run), i + run);
+                i = close > 0 ? close + run : i + run;
+                continue;
+            }
+            if (text.startsWith(delimiter.marker, i) && i > from && !Character.isWhitespace(text.charAt(i - 1))) {
+                // 单个*不能匹配**的一半
+                if (delimiter.marker.length() == 1 && text.startsWith(delimiter.marker, i + 1)) {
+                    i += 2;
+                    continue;
+                }
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * 链接[text](url)或图片![alt](url)
+     * @param start '['的位置
+     * @return 结束位置；格式不符或地址不安全时返回-1，由调用方按文本输出
+     */
+    private static int renderLink(String text, int start, StringBuilder html, int depth, boolean image,
+                                  int[] nextParen) {
+        int labelEnd = findLabelEnd(text, start);
+        if (labelEnd < 0 || labelEnd + 1 >= text.length() || text.charAt(labelEnd + 1) != '(') {
+            return -1;
+        }
+        if (nextParen[0] != Integer.MAX_VALUE && nextParen[0] < labelEnd + 2) {
+            int found = text.indexOf(')', labelEnd + 2);
+            nextParen[0] = found >= 0 ? found : Integer.MAX_VALUE;
+        }
+        int urlEnd = nextParen[0];
+        if (urlEnd == Integer.MAX_VALUE || urlEnd - labelEnd - 2 > MAX_URL_LENGTH) {
+            return -1;
+        }
+        String target = text.substring(labelEnd + 2, urlEnd).strip();
+        int space = target.indexOf(' ');
+        String url = space > 0 ? target.substring(0, space) : target;
+        if (!isSafeUrl(url, image)) {
+            return -1;
+        }
+        String label = text.substring(start + 1, labelEnd);
+        if (image) {
+            html.append("<img src=\"");
+            escape(url, html);
+            html.append("\" alt=\"");
+            escape(label, html);
+            html.append("\" loading=\"lazy\">");
+        } else {
+            appendAnchor(url, html);
+            if (depth < MAX_DEPTH) {
+                renderInline(label, html, depth + 1);
+            } else {
+                escape(label, html);
+            }
+            html.append("</a>");
+        }
+        return urlEnd + 1;
+    }
+
+    private static int findLabelEnd(String text, int start) {
+        int nesting = 0;
+        int limit = Math.min(text.length(), start + 1 + MAX_LABEL_LENGTH);
+        for (int i = start + 1; i < limit; i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                nesting++;
+            } else if (c == ']') {
+                if (nesting == 0) {
+                    return i;
+                }
+                nesting--;
+            }
+        }
+        return -1;
+    }
+
+    private static void appendAnchor(String url, StringBuilder html) {
+        html.append("<a href=\"");
+        escape(url, html);
+        html.append('"').append(LINK_ATTRIBUTES).append('>');
+    }
+
+    /**
+     * 只允许http(s)、mailto（图片只允许http(s)）和以单个/开头的站内路径，不允许空白、控制字符和反斜杠
+     * （浏览器把反斜杠当作/处理，/\evil.com会被当成//evil.com跳到站外）
+     */
+    private static boolean isSafeUrl(String url, boolean image) {
+        if (url.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c <= ' ' || c == 0x7F || c == '<' || c == '>' || c == '"' || c == '\\') {
+                return false;
+            }
+        }
+        String lower = url.toLowerCase(Locale.ROOT);
+        if (lower.startsWith("http://") || lower.startsWith("https://")) {
+            return true;
+        }
+        if (url.startsWith("/") && !url.startsWith("//")) {
+            return true;
+        }
+        return !image && lower.startsWith("mailto:");
+    }
+
+    private static String trimTrailingPunctuation(String url) {
+        int end = url.length();
+        while (end > 0 && ".,;:!?)]}'\"".indexOf(url.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return url.substring(0, end);
+    }
+
+    private static int countRun(String text, int start, char c) {
+        int i = start;
+        while (i < text.length() && text.charAt(i) == c) {
+            i++;
+        }
+        return i - start;
+    }
+
+    private static boolean isEscapable(char c) {
+        return "\\`*_{}[]()#+-.!~>|".indexOf(c) >= 0;
+    }
+
+    private static void escape(String text, StringBuilder html) {
+        for (int i = 0; i < text.length(); i++) {
+            escape(text.charAt(i), html);
+        }
+    }
+
+    private static void escape(char c, StringBuilder html) {
+        switch (c) {
+            case '&' -> html.append("&amp;");
+            case '<' -> html.append("&lt;");
+            case '>' -> html.append("&gt;");
+            case '"' -> html.append("&quot;");
+            case '\'' -> html.append("&#39;");
+            default -> html.append(c);
+        }
+    }
+
+    /**
+     * 成对的行内定界符，较长的写在前面以便优先匹配
+     */
+    private enum Delimiter {
+        STRONG_STAR("**", "strong"),
+        STRONG_UNDERSCORE("__", "strong"),
+        STRIKE("~~", "del"),
+        EMPHASIS("*", "em");
+
+        private final String marker;
+        private final String tag;
+
+        Delimiter(String marker, String tag) {
+            this.marker = marker;
+            this.tag = tag;
+        }
+
+        static Delimiter at(String text, int position) {
+            for (Delimiter delimiter : values()) {
+                if (text.startsWith(delimiter.marker, position)) {
+                    return delimiter;
+                }
+            }
+            return null;
+        }
+    }
+}
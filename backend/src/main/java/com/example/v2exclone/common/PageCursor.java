@@ -0,0 +1,61 @@
+package com.example.v2exclone.common;
+
+import com.example.v2exclone.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * 键集分页游标
+ * 记录(createdAt, id)位置和翻页方向，对外编码为不透明的Base64字符串
+ */
+public record PageCursor(LocalDateTime createdAt, Long id, boolean backward) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static PageCursor after(LocalDateTime createdAt, Long id) {
+        return new PageCursor(createdAt, id, false);
+    }
+
+    public static PageCursor before(LocalDateTime createdAt, Long id) {
+        return new PageCursor(createdAt, id, true);
+    }
+
+    /**
+     * 编码为字符串
+     * 格式：方向|秒|纳秒|ID
+     */
+    public String encode() {
+        String raw = (backward ? "p" : "n") + "|"
+                + createdAt.toEpochSecond(ZoneOffset.UTC) + "|"
+                + createdAt.getNano() + "|"
+                + id;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标字符串
+     * @param cursor 游标，为空表示第一页
+     * @return 游标，第一页返回null
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 4 || !(parts[0].equals("n") || parts[0].equals("p"))) {
+                throw BusinessException.badRequest("无效的分页游标");
+            }
+            LocalDateTime createdAt = LocalDateTime.ofEpochSecond(
+                    Long.parseLong(parts[1]), Integer.parseInt(parts[2]), ZoneOffset.UTC);
+            return new PageCursor(createdAt, Long.parseLong(parts[3]), parts[0].equals("p"));
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            throw BusinessException.badRequest("无效的分页游标");
+        }
+    }
+}
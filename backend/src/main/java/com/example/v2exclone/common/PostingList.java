@@ -0,0 +1,244 @@
+package com.example.v2exclone.common;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * 压缩的倒排列表（不可变）
+ * 每条记录是（文档ID、文档版本、加权词频），按文档ID升序排列；
+ * 文档ID存与前一条的差值，三个字段都用变长整数编码，常见情况下每条记录只占3到5个字节。
+ * 文档版本用于判断记录是否过期：文档重建索引后旧版本的记录不再计分，合并时被丢弃
+ */
+public final class PostingList {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[] data;
+    private final int size;
+
+    private PostingList(byte[] data, int size) {
+        this.data = data;
+        this.size = size;
+    }
+
+    /**
+     * 从持久化的字节恢复
+     */
+    public static PostingList of(byte[] data, int size) {
+        return new PostingList(data, size);
+    }
+
+    public byte[] bytes() {
+        return data;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Cursor cursor() {
+        return new Cursor(data, size);
+    }
+
+    public void forEach(PostingConsumer consumer) {
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            consumer.accept(cursor.docId(), cursor.generation(), cursor.frequency());
+        }
+    }
+
+    /**
+     * 合并多个倒排列表，丢弃版本已过期的记录
+     * @param lists 各自按文档ID有序的列表
+     * @param currentGeneration 文档ID到当前版本的映射，文档不存在时返回-1
+     */
+    public static PostingList merge(List<PostingList> lists, LongUnaryOperator currentGeneration) {
+        Cursor[] cursors = new Cursor[lists.size()];
+        boolean[] active = new boolean[cursors.length];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = lists.get(i).cursor();
+            active[i] = cursors[i].next();
+        }
+        Encoder encoder = new Encoder();
+        // 同一文档可能在多个段中各有一部分词频（如追加的回复），合并为一条
+        long pendingDocId = -1;
+        long pendingGeneration = -1;
+        int pendingFrequency = 0;
+        // 列表个数很少（不超过段数），每步线性找最小的文档ID即可
+        while (true) {
+            int min = -1;
+            for (int i = 0; i < cursors.length; i++) {
+                if (active[i] && (min < 0 || cursors[i].docId() < cursors[min].docId())) {
+                    min = i;
+                }
+            }
+            if (min < 0) {
+                break;
+            }
+            Cursor cursor = cursors[min];
+            if (cursor.generation() == currentGeneration.applyAsLong(cursor.docId())) {
+                if (cursor.docId() == pendingDocId) {
+                    pendingFrequency += cursor.frequency();
+                } else {
+                    if (pendingDocId >= 0) {
+                        encoder.add(pendingDocId, pendingGeneration, pendingFrequency);
+                    }
+                    pendingDocId = cursor.docId();
+                    pendingGeneration = cursor.generation();
+                    pendingFrequency = cursor.frequency();
+                }
+            }
+            active[min] = cursor.next();
+        }
+        if (pendingDocId >= 0) {
+            encoder.add(pendingDocId, pendingGeneration, pendingFrequency);
+        }
+        return encoder.build();
+    }
+
+    @FunctionalInterface
+    public interface PostingConsumer {
+        void accept(long docId, long generation, int frequency);
+    }
+
+    /**
+     * 顺序解码
+     */
+    public static final class Cursor {
+
+        private final byte[] data;
+        private final int size;
+        private int position;
+        private int read;
+        private long docId;
+        private long generation;
+        private int frequency;
+
+        private Cursor(byte[] data, int size) {
+            this.data = data;
+            this.size = size;
+        }
+
+        public boolean next() {
+            if (read == size) {
+                return false;
+            }
+            docId += readVarLong();
+            generation = readVarLong();
+            frequency = (int) readVarLong();
+            read++;
+            return true;
+        }
+
+        public long docId() {
+            return docId;
+        }
+
+        public long generation() {
+            return generation;
+        }
+
+        public int frequency() {
+            return frequency;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+
+    /**
+     * 可追加的倒排列表，记录可以乱序加入，build时排序并合并同一文档同一版本的词频。
+     * 不是线程安全的，由调用方加锁
+     */
+    public static final class Builder {
+
+        private long[] docIds = new long[4];
+        private long[] generations = new long[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        public void add(long docId, long generation, int frequency) {
+            if (size == docIds.length) {
+                int capacity = size * 2;
+                docIds = Arrays.copyOf(docIds, capacity);
+                generations = Arrays.copyOf(generations, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+            }
+            docIds[size] = docId;
+            generations[size] = generation;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public void forEach(PostingConsumer consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(docIds[i], generations[i], frequencies[i]);
+            }
+        }
+
+        public PostingList build() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> docIds[a] != docIds[b]
+                    ? Long.compare(docIds[a], docIds[b])
+                    : Long.compare(generations[a], generations[b]));
+
+            Encoder encoder = new Encoder();
+            int i = 0;
+            while (i < size) {
+                int first = order[i];
+                int frequency = 0;
+                while (i < size && docIds[order[i]] == docIds[first] && generations[order[i]] == generations[first]) {
+                    frequency += frequencies[order[i]];
+                    i++;
+                }
+                encoder.add(docIds[first], generations[first], frequency);
+            }
+            return encoder.build();
+        }
+    }
+
+    private static final class Encoder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private long previousDocId;
+        private int size;
+
+        void add(long docId, long generation, int frequency) {
+            writeVarLong(docId - previousDocId);
+            writeVarLong(generation);
+            writeVarLong(frequency);
+            previousDocId = docId;
+            size++;
+        }
+
+        PostingList build() {
+            return new PostingList(size == 0 ? EMPTY : out.toByteArray(), size);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.v2exclone.common;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 搜索分词器
+ * 先做NFKC归一化（全角字母数字转半角）并转小写，然后按字符类别切分：
+ * 连续的拉丁字母/数字组成一个词；连续的中日韩文字切成相邻两字的二元组（只有一个字时保留单字），
+ * 标点、空白、emoji等作为分隔符。索引和查询使用同一套规则，因此不需要词典
+ */
+public final class SearchTokenizer {
+
+    /**
+     * 超过此长度的拉丁词多半是链接或编码内容，不参与索引
+     */
+    private static final int MAX_WORD_LENGTH = 40;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 切分文本，按出现顺序返回词项（可能重复）
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+
+        StringBuilder word = new StringBuilder();
+        // 当前CJK连续段中的上一个字，-1表示不在CJK段中
+        int previousCjk = -1;
+        boolean cjkRunEmitted = false;
+        int i = 0;
+        while (i < normalized.length()) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                if (previousCjk >= 0) {
+                    tokens.add(new StringBuilder(4).appendCodePoint(previousCjk).appendCodePoint(codePoint).toString());
+                    cjkRunEmitted = true;
+                }
+                previousCjk = codePoint;
+                continue;
+            }
+            previousCjk = endCjkRun(previousCjk, cjkRunEmitted, tokens);
+            cjkRunEmitted = false;
+            if (Character.isLetterOrDigit(codePoint)) {
+                word.appendCodePoint(codePoint);
+            } else {
+                flushWord(word, tokens);
+            }
+        }
+        endCjkRun(previousCjk, cjkRunEmitted, tokens);
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    /**
+     * 结束一个CJK段：整段只有一个字时输出单字
+     */
+    private static int endCjkRun(int previousCjk, boolean cjkRunEmitted, List<String> tokens) {
+        if (previousCjk >= 0 && !cjkRunEmitted) {
+            tokens.add(new String(Character.toChars(previousCjk)));
+        }
+        return -1;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (!word.isEmpty()) {
+            if (word.length() <= MAX_WORD_LENGTH) {
+                tokens.add(word.toString());
+            }
+            word.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        // 长音符号在Unicode中属于COMMON，但在片假名词中间出现
+        if (codePoint == 0x30FC) {
+            return true;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
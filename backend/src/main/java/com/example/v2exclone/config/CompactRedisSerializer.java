@@ -0,0 +1,345 @@
+package com.example.v2exclone.config;
+
+import com.example.v2exclone.dto.CommunityStatsDTO;
+import com.example.v2exclone.dto.NodeDTO;
+import com.example.v2exclone.dto.ReplyDTO;
+import com.example.v2exclone.dto.ReplyPageDTO;
+import com.example.v2exclone.dto.TopicDTO;
+import com.example.v2exclone.dto.UserDTO;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 紧凑的二进制Redis值序列化器
+ * 常用DTO按固定字段顺序写成二进制：不写类名和字段名，整数用变长编码，时间写成秒+纳秒。
+ * 数据以魔数字节开头，后跟类型标签和格式版本；其他类型以及没有魔数的旧数据交给JSON序列化器处理，
+ * 因此切换后仍能读取Redis中已有的JSON缓存。格式版本不一致的二进制数据读为null（缓存未命中）
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    /**
+     * 魔数，JSON文本不会以这个字节开头
+     */
+    private static final byte MAGIC = (byte) 0xC7;
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int TYPE_TOPIC = 1;
+    private static final int TYPE_REPLY = 2;
+    private static final int TYPE_USER = 3;
+    private static final int TYPE_NODE = 4;
+    private static final int TYPE_COMMUNITY_STATS = 5;
+    private static final int TYPE_REPLY_PAGE = 6;
+
+    private final RedisSerializer<Object> fallback;
+
+    public CompactRedisSerializer(RedisSerializer<Object> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return fallback.serialize(null);
+        }
+        Writer out = new Writer();
+        if (value instanceof TopicDTO topic) {
+            out.header(TYPE_TOPIC);
+            writeTopic(out, topic);
+        } else if (value instanceof ReplyPageDTO page) {
+            out.header(TYPE_REPLY_PAGE);
+            out.varLong(page.getTotalElements());
+            List<ReplyDTO> content = page.getContent() != null ? page.getContent() : List.of();
+            out.varInt(content.size());
+            for (ReplyDTO reply : content) {
+                writeReply(out, reply);
+            }
+        } else if (value instanceof ReplyDTO reply) {
+            out.header(TYPE_REPLY);
+            writeReply(out, reply);
+        } else if (value instanceof UserDTO user) {
+            out.header(TYPE_USER);
+            writeUser(out, user);
+        } else if (value instanceof NodeDTO node) {
+            out.header(TYPE_NODE);
+            writeNode(out, node);
+        } else if (value instanceof CommunityStatsDTO stats) {
+            out.header(TYPE_COMMUNITY_STATS);
+            out.varLong(stats.getTotalMembers());
+            out.varLong(stats.getTotalTopics());
+            out.varLong(stats.getTotalReplies());
+            out.varLong(stats.getTodayTopics());
+            out.varLong(stats.getTodayReplies());
+        } else {
+            return fallback.serialize(value);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0 || bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        try {
+            Reader in = new Reader(bytes);
+            int type = in.varInt();
+            int version = in.varInt();
+            if (version != FORMAT_VERSION) {
+                // 其他版本写入的数据（升级前的旧格式或滚动发布中新实例写入的）按未命中处理，由调用方重新加载
+                return null;
+            }
+            return switch (type) {
+                case TYPE_TOPIC -> readTopic(in);
+                case TYPE_REPLY -> readReply(in);
+                case TYPE_USER -> readUser(in);
+                case TYPE_NODE -> readNode(in);
+                case TYPE_COMMUNITY_STATS -> new CommunityStatsDTO(
+                        in.varLong(), in.varLong(), in.varLong(), in.varLong(), in.varLong());
+                case TYPE_REPLY_PAGE -> {
+                    long total = in.varLong();
+                    int size = in.varInt();
+                    List<ReplyDTO> content = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        content.add(readReply(in));
+                    }
+                    yield new ReplyPageDTO(content, total);
+                }
+                default -> throw new SerializationException("未知的缓存类型: " + type);
+            };
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("缓存数据不完整", e);
+        }
+    }
+
+    private static void writeTopic(Writer out, TopicDTO topic) {
+        out.nullableLong(topic.getId());
+        out.string(topic.getTitle());
+        out.string(topic.getContent());
+        out.string(topic.getContentHtml());
+        out.dateTime(topic.getCreatedAt());
+        out.dateTime(topic.getUpdatedAt());
+        out.nullableInt(topic.getViewCount());
+        out.nullableInt(topic.getReplyCount());
+        out.bool(topic.getAuthor() != null);
+        if (topic.getAuthor() != null) {
+            writeUser(out, topic.getAuthor());
+        }
+        out.bool(topic.getNode() != null);
+        if (topic.getNode() != null) {
+            writeNode(out, topic.getNode());
+        }
+    }
+
+    private static TopicDTO readTopic(Reader in) {
+        return new TopicDTO(
+                in.nullableLong(),
+                in.string(),
+                in.string(),
+                in.string(),
+                in.dateTime(),
+                in.dateTime(),
+                in.nullableInt(),
+                in.nullableInt(),
+                in.bool() ? readUser(in) : null,
+                in.bool() ? readNode(in) : null
+        );
+    }
+
+    private static void writeReply(Writer out, ReplyDTO reply) {
+        out.nullableLong(reply.getId());
+        out.string(reply.getContent());
+        out.string(reply.getContentHtml());
+        out.dateTime(reply.getCreatedAt());
+        out.bool(reply.getAuthor() != null);
+        if (reply.getAuthor() != null) {
+            writeUser(out, reply.getAuthor());
+        }
+        out.nullableLong(reply.getTopicId());
+    }
+
+    private static ReplyDTO readReply(Reader in) {
+        return new ReplyDTO(
+                in.nullableLong(),
+                in.string(),
+                in.string(),
+                in.dateTime(),
+                in.bool() ? readUser(in) : null,
+                in.nullableLong()
+        );
+    }
+
+    private static void writeUser(Writer out, UserDTO user) {
+        out.nullableLong(user.getId());
+        out.string(user.getUsername());
+        out.string(user.getEmail());
+        out.string(user.getAvatar());
+        out.string(user.getBio());
+        out.dateTime(user.getCreatedAt());
+    }
+
+    private static UserDTO readUser(Reader in) {
+        return new UserDTO(
+                in.nullableLong(),
+                in.string(),
+                in.string(),
+                in.string(),
+                in.string(),
+                in.dateTime()
+        );
+    }
+
+    private static void writeNode(Writer out, NodeDTO node) {
+        out.nullableLong(node.getId());
+        out.string(node.getName());
+        out.string(node.getSlug());
+        out.string(node.getDescription());
+        out.dateTime(node.getCreatedAt());
+        out.nullableLong(node.getTopicCount());
+    }
+
+    private static NodeDTO readNode(Reader in) {
+        return new NodeDTO(
+                in.nullableLong(),
+                in.string(),
+                in.string(),
+                in.string(),
+                in.dateTime(),
+                in.nullableLong()
+        );
+    }
+
+    /**
+     * 二进制写入器，整数使用zigzag + 7位变长编码
+     */
+    private static class Writer {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+        void header(int type) {
+            buffer.write(MAGIC);
+            varInt(type);
+            varInt(FORMAT_VERSION);
+        }
+
+        void bool(boolean value) {
+            buffer.write(value ? 1 : 0);
+        }
+
+        void varInt(int value) {
+            varLong(value);
+        }
+
+        void varLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer.write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            buffer.write((int) zigzag);
+        }
+
+        void nullableLong(Long value) {
+            bool(value != null);
+            if (value != null) {
+                varLong(value);
+            }
+        }
+
+        void nullableInt(Integer value) {
+            bool(value != null);
+            if (value != null) {
+                varLong(value);
+            }
+        }
+
+        /**
+         * 长度+1后写入，0表示null
+         */
+        void string(String value) {
+            if (value == null) {
+                varInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varInt(bytes.length + 1);
+            buffer.write(bytes, 0, bytes.length);
+        }
+
+        void dateTime(LocalDateTime value) {
+            bool(value != null);
+            if (value != null) {
+                varLong(value.toEpochSecond(ZoneOffset.UTC));
+                varInt(value.getNano());
+            }
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+
+    private static class Reader {
+
+        private final byte[] bytes;
+        private int position = 1;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean bool() {
+            return bytes[position++] != 0;
+        }
+
+        int varInt() {
+            return (int) varLong();
+        }
+
+        long varLong() {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        Long nullableLong() {
+            return bool() ? varLong() : null;
+        }
+
+        Integer nullableInt() {
+            return bool() ? varInt() : null;
+        }
+
+        String string() {
+            int length = varInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        LocalDateTime dateTime() {
+            if (!bool()) {
+                return null;
+            }
+            long epochSecond = varLong();
+            int nano = varInt();
+            return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+        }
+    }
+}
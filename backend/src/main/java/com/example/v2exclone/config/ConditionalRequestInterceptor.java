@@ -0,0 +1,171 @@
+package com.example.v2exclone.config;
+
+import com.example.v2exclone.dto.CommunityStatsDTO;
+import com.example.v2exclone.dto.TopicDTO;
+import com.example.v2exclone.service.CommunityStatsService;
+import com.example.v2exclone.service.ContentRenderService;
+import com.example.v2exclone.service.FeedVersionService;
+import com.example.v2exclone.service.NodeService;
+import com.example.v2exclone.service.TopicService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 读接口条件请求拦截器
+ * 在进入控制器之前由数据版本计算弱校验值（W/"..."），If-None-Match命中时直接返回304，不执行业务查询和序列化。
+ * 校验值不包含浏览数，浏览数变化时响应体不同但校验值不变，因此只能是弱校验值，不能用于Range等需要逐字节一致的场景。
+ * 列表的数据版本在作者资料变更时也会递增；主题详情和回复列表的校验值只跟随主题本身，作者资料的变化要等主题更新后才会体现。
+ * 主题详情返回304时照常记一次浏览：客户端确实展示了页面，与200计数一致，浏览数不会因为客户端缓存而偏低。
+ * 未命中时把校验值放入请求属性，由GlobalResponseHandler在200响应上写出
+ */
+@Slf4j
+@Component
+public class ConditionalRequestInterceptor implements HandlerInterceptor {
+
+    /**
+     * 请求属性：本次响应的ETag
+     */
+    public static final String ETAG_ATTRIBUTE = ConditionalRequestInterceptor.class.getName() + ".etag";
+
+    /**
+     * 请求属性：本次响应的Cache-Control
+     */
+    public static final String CACHE_CONTROL_ATTRIBUTE = ConditionalRequestInterceptor.class.getName() + ".cacheControl";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Autowired
+    private ConditionalRequestProperties properties;
+
+    @Autowired
+    private TopicService topicService;
+
+    @Autowired
+    private FeedVersionService feedVersionService;
+
+    @Autowired
+    private NodeService nodeService;
+
+    @Autowired
+    private CommunityStatsService communityStatsService;
+
+    @Autowired
+    private ContentRenderService contentRenderService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.isEnabled()
+                || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            return true;
+        }
+
+        String uri = request.getRequestURI();
+        for (ConditionalRequestProperties.Rule rule : properties.getRoutes().values()) {
+            if (!pathMatcher.match(rule.getPath(), uri)) {
+                continue;
+            }
+            Map<String, String> variables = pathMatcher.extractUriTemplateVariables(rule.getPath(), uri);
+            String etag = computeETag(rule.getValidator(), variables);
+            if (etag == null) {
+                return true;
+            }
+
+            if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                if (rule.getValidator() == ConditionalRequestProperties.Validator.TOPIC) {
+                    // 304也是一次浏览，与200一样计数
+                    topicService.recordView(Long.valueOf(variables.values().iterator().next()));
+                }
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                response.setHeader(HttpHeaders.ETAG, etag);
+                response.setHeader(HttpHeaders.CACHE_CONTROL, rule.getCacheControl());
+                return false;
+            }
+
+            request.setAttribute(ETAG_ATTRIBUTE, etag);
+            request.setAttribute(CACHE_CONTROL_ATTRIBUTE, rule.getCacheControl());
+            return true;
+        }
+        return true;
+    }
+
+    /**
+     * 由数据版本计算弱ETag（W/"..."），无法确定版本时返回null，此时照常返回完整响应
+     * 渲染器版本也计入校验值，升级渲染器后旧的缓存随之失效
+     */
+    private String computeETag(ConditionalRequestProperties.Validator validator, Map<String, String> variables) {
+        try {
+            String value = switch (validator) {
+                case TOPIC -> topicETag("t", variables);
+                case REPLIES -> topicETag("r", variables);
+                case FEED -> {
+                    long version = feedVersionService.getVersion();
+                    yield version == FeedVersionService.UNKNOWN ? null
+                            : "f-" + version + "-" + contentRenderService.version();
+                }
+                case NODES -> "n-" + Long.toHexString(nodeService.getCatalogVersion());
+                case STATS -> {
+                    CommunityStatsDTO stats = communityStatsService.getCommunityStats();
+                    yield "s-" + stats.getTotalMembers() + "-" + stats.getTotalTopics() + "-" + stats.getTotalReplies()
+                            + "-" + stats.getTodayTopics() + "-" + stats.getTodayReplies();
+                }
+            };
+            return value != null ? "W/\"" + value + "\"" : null;
+        } catch (Exception e) {
+            // 校验值只是优化，出错时交给控制器按原逻辑处理
+            log.debug("计算ETag失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String topicETag(String prefix, Map<String, String> variables) {
+        if (variables.size() != 1) {
+            return null;
+        }
+        Long topicId = Long.valueOf(variables.values().iterator().next());
+        Optional<TopicDTO> topic = topicService.getCachedTopic(topicId);
+        if (topic.isEmpty()) {
+            return null;
+        }
+        LocalDateTime updatedAt = topic.get().getUpdatedAt();
+        long updatedMillis = updatedAt != null ? updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+        Integer replyCount = topic.get().getReplyCount();
+        return prefix + "-" + topicId + "-" + updatedMillis + "-" + (replyCount != null ? replyCount : 0)
+                + "-" + contentRenderService.version();
+    }
+
+    /**
+     * If-None-Match按弱比较处理：两边都忽略W/前缀，支持逗号分隔的多个值和*
+     */
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaqueTag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (stripWeakPrefix(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
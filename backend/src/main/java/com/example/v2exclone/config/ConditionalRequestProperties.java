@@ -0,0 +1,72 @@
+package com.example.v2exclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 读接口条件请求配置（app.conditional-get）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.conditional-get")
+public class ConditionalRequestProperties {
+
+    /**
+     * 是否启用ETag和304应答
+     */
+    private boolean enabled = true;
+
+    /**
+     * 各路由的规则，key为规则名，按配置顺序取第一个匹配的规则
+     */
+    private Map<String, Rule> routes = new LinkedHashMap<>();
+
+    /**
+     * 校验值的来源
+     */
+    public enum Validator {
+        /**
+         * 单个主题：更新时间和回复数，路径中唯一的变量为主题ID
+         */
+        TOPIC,
+        /**
+         * 主题的回复列表：同样取主题的更新时间和回复数
+         */
+        REPLIES,
+        /**
+         * 主题列表：全局的列表数据版本
+         */
+        FEED,
+        /**
+         * 节点目录：目录内容和各节点主题数
+         */
+        NODES,
+        /**
+         * 社区统计：各项计数
+         */
+        STATS
+    }
+
+    @Data
+    public static class Rule {
+
+        /**
+         * 请求路径（Ant风格，变量可带正则，如/api/topics/{id:\d+}）
+         */
+        private String path;
+
+        /**
+         * 校验值的来源
+         */
+        private Validator validator;
+
+        /**
+         * 返回的Cache-Control，默认每次都向服务端验证
+         */
+        private String cacheControl = "no-cache";
+    }
+}
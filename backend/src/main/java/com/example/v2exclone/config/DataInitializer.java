@@ -8,9 +8,14 @@ import com.example.v2exclone.repository.TopicRepository;
 import com.example.v2exclone.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+/**
+ * 演示数据初始化，以dataset profile启动时由DatasetGenerator生成压测数据集代替
+ */
 @Component
+@Profile("!dataset")
 public class DataInitializer implements CommandLineRunner {
 
     @Autowired
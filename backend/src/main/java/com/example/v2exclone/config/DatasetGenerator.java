@@ -0,0 +1,469 @@
+package com.example.v2exclone.config;
+
+import com.example.v2exclone.common.ZipfSampler;
+import com.example.v2exclone.repository.UserRepository;
+import com.example.v2exclone.service.CommunityStatsService;
+import com.example.v2exclone.service.ReplyCountReconciler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 压测数据集生成器，以dataset profile启动时代替DataInitializer
+ * 在空库上生成可配置规模的用户、节点、主题和回复：
+ * 主题热度和用户活跃度服从Zipf分布，回复时间集中在发帖后的一波并带长尾，内容混合中日文、英文单词和emoji。
+ * 每一批数据使用由种子、阶段和批号派生的独立随机数，多线程并行写入时结果仍然与线程调度无关，
+ * 同一种子总是生成相同的数据
+ */
+@Slf4j
+@Component
+@Profile("dataset")
+public class DatasetGenerator implements CommandLineRunner {
+
+    private static final String DEFAULT_PASSWORD = "password123";
+
+    private static final String INSERT_USERS_SQL = """
+            INSERT INTO users (id, username, email, password, bio, provider, created_at, updated_at)
+            SELECT v.id, v.username, v.email, v.password, v.bio, 'LOCAL', v.created_at, v.created_at
+            FROM unnest(?::bigint[], ?::text[], ?::text[], ?::text[], ?::text[], ?::timestamp[])
+                AS v(id, username, email, password, bio, created_at)
+            """;
+
+    private static final String INSERT_NODES_SQL = """
+            INSERT INTO nodes (id, name, slug, description, created_at)
+            SELECT * FROM unnest(?::bigint[], ?::text[], ?::text[], ?::text[], ?::timestamp[])
+            """;
+
+    private static final String INSERT_TOPICS_SQL = """
+            INSERT INTO topics (id, title, content, created_at, updated_at, view_count, reply_count, author_id, node_id)
+            SELECT v.id, v.title, v.content, v.created_at, v.created_at, v.view_count, 0, v.author_id, v.node_id
+            FROM unnest(?::bigint[], ?::text[], ?::text[], ?::timestamp[], ?::int[], ?::bigint[], ?::bigint[])
+                AS v(id, title, content, created_at, view_count, author_id, node_id)
+            """;
+
+    private static final String INSERT_REPLIES_SQL = """
+            INSERT INTO replies (id, content, created_at, author_id, topic_id)
+            SELECT * FROM unnest(?::bigint[], ?::text[], ?::timestamp[], ?::bigint[], ?::bigint[])
+            """;
+
+    /**
+     * 显式写入ID后把自增序列推到当前最大值之后
+     */
+    private static final String RESET_SEQUENCE_SQL =
+            "SELECT setval(pg_get_serial_sequence('%1$s', 'id'), (SELECT COALESCE(MAX(id), 0) + 1 FROM %1$s), false)";
+
+    private static final long PHASE_USERS = 1;
+    private static final long PHASE_TOPICS = 2;
+    private static final long PHASE_REPLIES = 3;
+    private static final long PHASE_TOPIC_TIME = 4;
+    private static final long PHASE_PERMUTATION = 5;
+
+    private static final String HANZI = "的一是在不了有和人这中大为上个我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说"
+            + "产种面而方后多定行学法所得经十三之进着等部度家电力里如水化高自二理起小物现实加量都两体机当使点从业本去把性好应开它合还"
+            + "因由其些然前外天四日那事平形相全表间样与关各重新线内数正心反你明看原又么利比或但质气第向道命此变条只没结解问意建月公无"
+            + "系很情者最立代想已通并提直题程展五果料象员位入常文总次品式活设及管特件长求老头基资边流路级少图山统接知较将组见计别她手";
+
+    private static final String KANA = "あいうえおかきくけこさしすせそたちつてとなにぬねのはひふへほまみむめもやゆよらりるれろわをん"
+            + "アイウエオカキクケコサシスセソタチツテトゲームコーラ";
+
+    private static final String[] EMOJI = {"😀", "😂", "🤔", "👍", "🎮", "🥤", "🍟", "🔥", "✨", "🙏", "😭", "🎉", "💻", "📱", "🐱"};
+
+    private static final String[] WORDS = {"Java", "Spring", "Redis", "PostgreSQL", "MacBook", "iPhone", "Switch",
+            "Steam", "GitHub", "Docker", "Kotlin", "Rust", "API", "bug", "PR", "V2EX"};
+
+    private static final String PUNCTUATION = "，。！？、";
+
+    private static final String[] USERNAME_PREFIXES = {"小埋", "干物妹", "UMR", "海老名", "切绘", "橘", "可乐", "薯片", "宅", "うまる"};
+
+    private static final String[][] NODE_NAMES = {
+            {"技术", "tech"}, {"分享创造", "share"}, {"Apple", "apple"}, {"问与答", "qna"}, {"创业", "startup"},
+            {"程序员", "programmer"}, {"酷工作", "jobs"}, {"动漫", "anime"}, {"游戏", "games"}, {"分享发现", "discover"},
+            {"设计", "design"}, {"生活", "life"}, {"音乐", "music"}, {"电影", "movie"}, {"读书", "books"},
+            {"旅行", "travel"}, {"美食", "food"}, {"宠物", "pets"}, {"健身", "fitness"}, {"摄影", "photo"},
+            {"二手交易", "deals"}, {"Android", "android"}, {"Linux", "linux"}, {"Python", "python"}, {"云计算", "cloud"}
+    };
+
+    /**
+     * 每小时的发帖权重，晚间是高峰
+     */
+    private static final double[] HOURLY_WEIGHTS = {
+            3, 2, 1, 1, 1, 1, 2, 3, 5, 7, 8, 8, 7, 7, 8, 8, 8, 7, 7, 8, 10, 11, 9, 6
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReplyCountReconciler replyCountReconciler;
+
+    @Autowired
+    private CommunityStatsService communityStatsService;
+
+    @Value("${app.dataset.seed:20240101}")
+    private long seed;
+
+    @Value("${app.dataset.users:100000}")
+    private int users;
+
+    @Value("${app.dataset.nodes:25}")
+    private int nodes;
+
+    @Value("${app.dataset.topics:200000}")
+    private int topics;
+
+    @Value("${app.dataset.replies:2000000}")
+    private long replies;
+
+    @Value("${app.dataset.batch-size:2000}")
+    private int batchSize;
+
+    @Value("${app.dataset.threads:0}")
+    private int threads;
+
+    @Value("${app.dataset.zipf-exponent:1.0}")
+    private double zipfExponent;
+
+    @Value("${app.dataset.days:365}")
+    private int days;
+
+    /**
+     * 数据的时间上界，取当天零点，同一天内重复生成的数据完全相同
+     */
+    private LocalDateTime end;
+
+    private ZipfSampler userSampler;
+    private ZipfSampler nodeSampler;
+    private ZipfSampler topicSampler;
+    private Permutation userPermutation;
+    private Permutation topicPermutation;
+    private double topicHarmonic;
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (userRepository.count() > 0) {
+            log.info("数据已存在，跳过数据集生成");
+            return;
+        }
+
+        end = LocalDate.now().atStartOfDay();
+        userSampler = new ZipfSampler(users, zipfExponent);
+        nodeSampler = new ZipfSampler(nodes, zipfExponent);
+        topicSampler = new ZipfSampler(topics, zipfExponent);
+        userPermutation = Permutation.of(users, mix(seed, PHASE_PERMUTATION, 1));
+        topicPermutation = Permutation.of(topics, mix(seed, PHASE_PERMUTATION, 2));
+        for (int rank = 1; rank <= topics; rank++) {
+            topicHarmonic += 1.0 / Math.pow(rank, zipfExponent);
+        }
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        log.info("开始生成数据集: seed={}, {} 用户, {} 节点, {} 主题, {} 回复, {} 个线程",
+                seed, users, nodes, topics, replies, poolSize);
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        try {
+            writeNodes();
+            runPhase(pool, "用户", users, this::writeUsers);
+            runPhase(pool, "主题", topics, this::writeTopics);
+            runPhase(pool, "回复", replies, this::writeReplies);
+        } finally {
+            pool.shutdown();
+        }
+
+        for (String table : List.of("users", "nodes", "topics", "replies")) {
+            jdbcTemplate.queryForObject(RESET_SEQUENCE_SQL.formatted(table), Long.class);
+        }
+        replyCountReconciler.reconcile();
+        communityStatsService.reconcile();
+        log.info("数据集生成完成，耗时 {}s", Duration.ofNanos(System.nanoTime() - start).toSeconds());
+    }
+
+    /**
+     * 把[0, total)按批切分后交给线程池并行写入，等待全部完成
+     */
+    private void runPhase(ExecutorService pool, String label, long total, ChunkWriter writer)
+            throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (long from = 0, chunk = 0; from < total; from += batchSize, chunk++) {
+            long chunkFrom = from;
+            long chunkTo = Math.min(total, from + batchSize);
+            long chunkIndex = chunk;
+            futures.add(pool.submit(() -> writer.write(chunkIndex, chunkFrom, chunkTo)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        log.info("生成{} {} 条，{} 条/秒", label, total, total * 1_000_000_000L / elapsedNanos);
+    }
+
+    private void writeNodes() {
+        int count = nodes;
+        Object[] ids = new Object[count];
+        Object[] names = new Object[count];
+        Object[] slugs = new Object[count];
+        Object[] descriptions = new Object[count];
+        Object[] createdAt = new Object[count];
+        LocalDateTime created = end.minusDays(days);
+        for (int i = 0; i < count; i++) {
+            ids[i] = (long) i + 1;
+            if (i < NODE_NAMES.length) {
+                names[i] = NODE_NAMES[i][0];
+                slugs[i] = NODE_NAMES[i][1];
+            } else {
+                names[i] = "节点" + (i + 1);
+                slugs[i] = "node-" + (i + 1);
+            }
+            descriptions[i] = names[i] + "相关讨论";
+            createdAt[i] = Timestamp.valueOf(created);
+        }
+        insert(INSERT_NODES_SQL, new String[]{"bigint", "text", "text", "text", "timestamp"},
+                ids, names, slugs, descriptions, createdAt);
+    }
+
+    private void writeUsers(long chunk, long from, long to) {
+        SplittableRandom random = new SplittableRandom(mix(seed, PHASE_USERS, chunk));
+        int count = (int) (to - from);
+        Object[] ids = new Object[count];
+        Object[] usernames = new Object[count];
+        Object[] emails = new Object[count];
+        Object[] passwords = new Object[count];
+        Object[] bios = new Object[count];
+        Object[] createdAt = new Object[count];
+        for (int i = 0; i < count; i++) {
+            long id = from + i + 1;
+            ids[i] = id;
+            usernames[i] = USERNAME_PREFIXES[random.nextInt(USERNAME_PREFIXES.length)] + id;
+            emails[i] = "user" + id + "@example.com";
+            passwords[i] = DEFAULT_PASSWORD;
+            bios[i] = random.nextDouble() < 0.5 ? text(random, 4, 30) : null;
+            createdAt[i] = Timestamp.valueOf(randomTime(random));
+        }
+        insert(INSERT_USERS_SQL, new String[]{"bigint", "text", "text", "text", "text", "timestamp"},
+                ids, usernames, emails, passwords, bios, createdAt);
+    }
+
+    private void writeTopics(long chunk, long from, long to) {
+        SplittableRandom random = new SplittableRandom(mix(seed, PHASE_TOPICS, chunk));
+        int count = (int) (to - from);
+        Object[] ids = new Object[count];
+        Object[] titles = new Object[count];
+        Object[] contents = new Object[count];
+        Object[] createdAt = new Object[count];
+        Object[] viewCounts = new Object[count];
+        Object[] authorIds = new Object[count];
+        Object[] nodeIds = new Object[count];
+        for (int i = 0; i < count; i++) {
+            long id = from + i + 1;
+            ids[i] = id;
+            titles[i] = text(random, 5, 40);
+            contents[i] = paragraphs(random);
+            createdAt[i] = Timestamp.valueOf(topicCreatedAt(id));
+            viewCounts[i] = viewCount(random, id);
+            authorIds[i] = userPermutation.idOf(userSampler.sample(random));
+            nodeIds[i] = (long) nodeSampler.sample(random);
+        }
+        insert(INSERT_TOPICS_SQL, new String[]{"bigint", "text", "text", "timestamp", "int", "bigint", "bigint"},
+                ids, titles, contents, createdAt, viewCounts, authorIds, nodeIds);
+    }
+
+    private void writeReplies(long chunk, long from, long to) {
+        SplittableRandom random = new SplittableRandom(mix(seed, PHASE_REPLIES, chunk));
+        int count = (int) (to - from);
+        Object[] ids = new Object[count];
+        Object[] contents = new Object[count];
+        Object[] createdAt = new Object[count];
+        Object[] authorIds = new Object[count];
+        Object[] topicIds = new Object[count];
+        for (int i = 0; i < count; i++) {
+            // 与用户、主题一样显式写入ID，不依赖各分片提交的先后顺序
+            ids[i] = from + i + 1;
+            long topicId = topicPermutation.idOf(topicSampler.sample(random));
+            contents[i] = text(random, 2, random.nextDouble() < 0.9 ? 60 : 400);
+            createdAt[i] = Timestamp.valueOf(replyTime(random, topicCreatedAt(topicId)));
+            authorIds[i] = userPermutation.idOf(userSampler.sample(random));
+            topicIds[i] = topicId;
+        }
+        insert(INSERT_REPLIES_SQL, new String[]{"bigint", "text", "timestamp", "bigint", "bigint"},
+                ids, contents, createdAt, authorIds, topicIds);
+    }
+
+    private void insert(String sql, String[] types, Object[]... columns) {
+        jdbcTemplate.update(sql, ps -> {
+            Connection connection = ps.getConnection();
+            for (int i = 0; i < columns.length; i++) {
+                ps.setArray(i + 1, connection.createArrayOf(types[i], columns[i]));
+            }
+        });
+    }
+
+    /**
+     * 主题的发布时间只由ID决定，生成回复时无需回查数据库
+     * 越接近现在发帖越多，一天之内按HOURLY_WEIGHTS分布
+     */
+    private LocalDateTime topicCreatedAt(long topicId) {
+        return randomTime(new SplittableRandom(mix(seed, PHASE_TOPIC_TIME, topicId)));
+    }
+
+    private LocalDateTime randomTime(SplittableRandom random) {
+        long daysAgo = (long) (days * (1 - Math.sqrt(random.nextDouble())));
+        LocalDateTime day = end.minusDays(daysAgo + 1);
+        return day.plusHours(weightedHour(random))
+                .plusMinutes(random.nextInt(60))
+                .plusSeconds(random.nextInt(60));
+    }
+
+    /**
+     * 回复时间：七成在发帖后半小时量级的第一波里，两成多在随后几个小时，其余按帕累托分布拖出长尾
+     */
+    private LocalDateTime replyTime(SplittableRandom random, LocalDateTime topicTime) {
+        double p = random.nextDouble();
+        double minutes;
+        if (p < 0.7) {
+            minutes = exponential(random, 30);
+        } else if (p < 0.95) {
+            minutes = exponential(random, 360);
+        } else {
+            minutes = 60 * Math.pow(1 - random.nextDouble(), -1 / 1.2);
+        }
+        long remaining = Duration.between(topicTime, end).toSeconds();
+        long offset = (long) (minutes * 60) + 1;
+        if (offset >= remaining) {
+            offset = (long) (random.nextDouble() * Math.max(1, remaining));
+        }
+        return topicTime.plusSeconds(offset);
+    }
+
+    /**
+     * 浏览数与主题热度成正比，约为预期回复数的8到16倍
+     */
+    private int viewCount(SplittableRandom random, long topicId) {
+        long rank = topicPermutation.rankOf(topicId);
+        double expectedReplies = replies / (topicHarmonic * Math.pow(rank, zipfExponent));
+        return (int) Math.min(Integer.MAX_VALUE, expectedReplies * (8 + random.nextInt(9)) + random.nextInt(50));
+    }
+
+    private static int weightedHour(SplittableRandom random) {
+        double total = 0;
+        for (double weight : HOURLY_WEIGHTS) {
+            total += weight;
+        }
+        double target = random.nextDouble() * total;
+        for (int hour = 0; hour < HOURLY_WEIGHTS.length; hour++) {
+            target -= HOURLY_WEIGHTS[hour];
+            if (target < 0) {
+                return hour;
+            }
+        }
+        return HOURLY_WEIGHTS.length - 1;
+    }
+
+    private static double exponential(SplittableRandom random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    private static String paragraphs(SplittableRandom random) {
+        int count = 1 + random.nextInt(4);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                content.append("\n\n");
+            }
+            content.append(text(random, 20, 200));
+        }
+        return content.toString();
+    }
+
+    /**
+     * 生成minLength到maxLength个字符的文本，以汉字为主，夹杂假名、英文单词和emoji
+     */
+    private static String text(SplittableRandom random, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder text = new StringBuilder(length * 2);
+        int untilPunctuation = 6 + random.nextInt(12);
+        for (int i = 0; i < length; i++) {
+            double p = random.nextDouble();
+            if (p < 0.85) {
+                text.append(HANZI.charAt(random.nextInt(HANZI.length())));
+            } else if (p < 0.91) {
+                text.append(KANA.charAt(random.nextInt(KANA.length())));
+            } else if (p < 0.96) {
+                text.append(' ').append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            } else {
+                text.append(EMOJI[random.nextInt(EMOJI.length)]);
+            }
+            if (--untilPunctuation == 0 && i < length - 1) {
+                text.append(PUNCTUATION.charAt(random.nextInt(PUNCTUATION.length())));
+                untilPunctuation = 6 + random.nextInt(12);
+            }
+        }
+        return text.toString().strip();
+    }
+
+    /**
+     * 由种子、阶段和序号派生互不相关的子种子（MurmurHash3的fmix64混合）
+     */
+    private static long mix(long seed, long phase, long index) {
+        long h = seed * 0x9E3779B97F4A7C15L + phase;
+        h ^= index * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter {
+        void write(long chunk, long from, long to);
+    }
+
+    /**
+     * 排名与ID之间的双射：id = (rank - 1) * stride mod n + 1
+     * 让热门主题和活跃用户分散在整个ID区间，而不是集中在最小的ID上
+     */
+    private record Permutation(long n, long stride, long inverse) {
+
+        static Permutation of(long n, long seed) {
+            if (n == 1) {
+                return new Permutation(1, 0, 0);
+            }
+            long stride = Math.floorMod(seed, n);
+            while (stride == 0 || BigInteger.valueOf(stride).gcd(BigInteger.valueOf(n)).longValue() != 1) {
+                stride = (stride + 1) % n;
+            }
+            long inverse = BigInteger.valueOf(stride).modInverse(BigInteger.valueOf(n)).longValue();
+            return new Permutation(n, stride, inverse);
+        }
+
+        long idOf(long rank) {
+            return Math.floorMod((rank - 1) * stride, n) + 1;
+        }
+
+        long rankOf(long id) {
+            return Math.floorMod((id - 1) * inverse, n) + 1;
+        }
+    }
+}
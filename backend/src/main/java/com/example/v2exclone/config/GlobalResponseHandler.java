@@ -6,10 +6,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
@@ -61,6 +65,29 @@ public class GlobalResponseHandler implements ResponseBodyAdvice<Object> {
         // 包装其他类型的响应
         ApiResponse<Object> apiResponse = ApiResponse.success(body);
         apiResponse.setPath(path);
+        applyValidator(apiResponse, request, response);
         return apiResponse;
     }
+
+    /**
+     * 条件请求拦截器算出了ETag时，在200响应上写出ETag和Cache-Control，
+     * 同时去掉包装中的时间戳，同一ETag对应的响应体除浏览数外保持一致
+     */
+    private void applyValidator(ApiResponse<Object> apiResponse, ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)
+                || !(response instanceof ServletServerHttpResponse servletResponse)) {
+            return;
+        }
+        Object etag = servletRequest.getServletRequest().getAttribute(ConditionalRequestInterceptor.ETAG_ATTRIBUTE);
+        if (etag == null || servletResponse.getServletResponse().getStatus() != HttpStatus.OK.value()) {
+            return;
+        }
+        Object cacheControl = servletRequest.getServletRequest()
+                .getAttribute(ConditionalRequestInterceptor.CACHE_CONTROL_ATTRIBUTE);
+        response.getHeaders().set(HttpHeaders.ETAG, etag.toString());
+        if (cacheControl != null) {
+            response.getHeaders().set(HttpHeaders.CACHE_CONTROL, cacheControl.toString());
+        }
+        apiResponse.setTimestamp(null);
+    }
 }
@@ -1,8 +1,8 @@
 package com.example.v2exclone.config;
 
-import com.example.v2exclone.entity.User;
-import com.example.v2exclone.service.UserService;
 import com.example.v2exclone.service.TokenBlacklistService;
+import com.example.v2exclone.service.TokenEpochService;
+import com.example.v2exclone.util.JwtClaims;
 import com.example.v2exclone.util.JwtUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -11,14 +11,12 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Optional;
 
 @Component
@@ -28,10 +26,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private UserService userService;
+    private TokenBlacklistService tokenBlacklistService;
 
     @Autowired
-    private TokenBlacklistService tokenBlacklistService;
+    private TokenEpochService tokenEpochService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
@@ -39,26 +37,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && jwtUtil.validateToken(jwt) && !tokenBlacklistService.isTokenBlacklisted(jwt)) {
-                Long userId = jwtUtil.getUserIdFromToken(jwt);
+            Optional<JwtClaims> claims = jwtUtil.parseToken(jwt);
 
-                Optional<User> userOptional = userService.findById(userId);
-                if (userOptional.isPresent()) {
-                    User user = userOptional.get();
-                    
-                    // 创建UserDetails对象
-                    UserDetails userDetails = org.springframework.security.core.userdetails.User.builder()
-                            .username(user.getUsername())
-                            .password("") // OAuth用户没有密码
-                            .authorities(new ArrayList<>()) // 暂时不设置权限
-                            .build();
+            if (claims.isPresent()
+                    && tokenEpochService.isCurrent(claims.get())
+                    && !tokenBlacklistService.isTokenBlacklisted(claims.get())) {
+                // 当前用户直接由token声明构建，不查询数据库
+                AuthenticatedUser principal = AuthenticatedUser.from(claims.get());
 
-                    UsernamePasswordAuthenticationToken authentication = 
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                UsernamePasswordAuthenticationToken authentication = 
+                        new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                }
+                SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
@@ -116,7 +116,7 @@ public class LoggingInterceptor implements HandlerInterceptor {
     /**
      * 获取客户端真实IP地址
      */
-    private String getClientIpAddress(HttpServletRequest request) {
+    public static String getClientIpAddress(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
             return xForwardedFor.split(",")[0].trim();
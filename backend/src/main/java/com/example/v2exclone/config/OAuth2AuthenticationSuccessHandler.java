@@ -1,6 +1,7 @@
 package com.example.v2exclone.config;
 
 import com.example.v2exclone.entity.User;
+import com.example.v2exclone.service.TokenEpochService;
 import com.example.v2exclone.service.UserService;
 import com.example.v2exclone.util.JwtUtil;
 import jakarta.servlet.ServletException;
@@ -28,6 +29,9 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TokenEpochService tokenEpochService;
+
     private List<String> authorizedRedirectUris = Arrays.asList("http://localhost:3000");
 
     @Override
@@ -52,7 +56,8 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
         
         try {
             User user = userService.processOAuth2User("github", oAuth2User.getAttributes());
-            String token = jwtUtil.generateToken(user.getId(), user.getUsername());
+            String token = jwtUtil.generateToken(user.getId(), user.getUsername(),
+                    tokenEpochService.getEpochForIssue(user.getId()));
 
             return UriComponentsBuilder.fromUriString(targetUrl)
                     .queryParam("token", token)
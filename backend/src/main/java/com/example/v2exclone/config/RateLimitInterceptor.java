@@ -0,0 +1,87 @@
+package com.example.v2exclone.config;
+
+import com.example.v2exclone.common.ApiResponse;
+import com.example.v2exclone.service.RateLimiterService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 写接口限流拦截器
+ * 在进入控制器之前按用户和客户端IP分别限流，任何一个超限都直接返回429，不产生任何数据库访问。
+ * 客户端IP取request.getRemoteAddr()，不读取客户端可以任意伪造的X-Forwarded-For；
+ * 部署在代理之后时由server.forward-headers-strategy只接受受信任代理转发的地址
+ */
+@Slf4j
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private RateLimiterService rateLimiterService;
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+
+        for (Map.Entry<String, RateLimitProperties.Rule> entry : properties.getRoutes().entrySet()) {
+            RateLimitProperties.Rule rule = entry.getValue();
+            if (!rule.getMethod().equalsIgnoreCase(request.getMethod())
+                    || !rule.getPath().equals(request.getRequestURI())) {
+                continue;
+            }
+
+            String routeName = entry.getKey();
+            long retryAfterMillis = 0;
+
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+                retryAfterMillis = rateLimiterService.tryAcquire(routeName + ":user:" + user.getUserId(), rule);
+            }
+            if (retryAfterMillis == 0) {
+                retryAfterMillis = rateLimiterService.tryAcquire(routeName + ":ip:" + request.getRemoteAddr(), rule);
+            }
+
+            if (retryAfterMillis > 0) {
+                reject(request, response, retryAfterMillis);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long retryAfterMillis)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+        log.warn("请求被限流: {} {} from {}, {}秒后重试", request.getMethod(), request.getRequestURI(),
+                request.getRemoteAddr(), retryAfterSeconds);
+
+        ApiResponse<Object> body = ApiResponse.error(HttpStatus.TOO_MANY_REQUESTS.value(), "请求过于频繁，请稍后再试")
+                .path(request.getRequestURI());
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(body));
+    }
+}
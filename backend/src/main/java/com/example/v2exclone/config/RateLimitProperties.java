@@ -0,0 +1,65 @@
+package com.example.v2exclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 写接口限流配置（app.rate-limit）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * local：各实例独立的令牌桶；redis：基于Redis滑动窗口的集群级限流
+     */
+    private String mode = "local";
+
+    /**
+     * 各路由的限流规则，key为规则名
+     */
+    private Map<String, Rule> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class Rule {
+
+        /**
+         * HTTP方法
+         */
+        private String method = "POST";
+
+        /**
+         * 请求路径（精确匹配）
+         */
+        private String path;
+
+        /**
+         * 每个周期允许的请求数
+         */
+        private int permits = 10;
+
+        /**
+         * 周期（毫秒）
+         */
+        private long period = 60000;
+
+        /**
+         * 允许的突发请求数（仅local模式），默认等于permits
+         */
+        private Integer burst;
+
+        public int effectiveBurst() {
+            return burst != null ? burst : permits;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.v2exclone.config;
+
+import com.example.v2exclone.service.FeedVersionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 热点列表响应字节缓存
+ * 对配置的路由缓存最终写出的响应字节（包括ApiResponse包装和JSON序列化），可同时缓存gzip后的字节，
+ * 命中时直接写入输出流，不查询数据库、不构建DTO、不经过Jackson。
+ * 缓存项记录构建时的主题列表数据版本，新建/修改主题、新增回复使版本递增后缓存项即失效（各实例通过版本同步一起失效）；
+ * 失效后由第一个请求经过正常流程重建，同一时间到达的其他请求等待这次重建的结果，不重复查询。
+ * 版本未知（Redis不可用）时不使用缓存
+ */
+@Slf4j
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private final Map<String, CachedResponse> cache = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<CachedResponse>> rebuilding = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ResponseCacheProperties properties;
+
+    @Autowired
+    private FeedVersionService feedVersionService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || !"GET".equals(request.getMethod()) || findRule(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ResponseCacheProperties.Rule rule = findRule(request);
+        long version = feedVersionService.getVersion();
+        if (rule == null || version == FeedVersionService.UNKNOWN) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (rule.isGzip()) {
+            // 同一地址可能返回压缩或未压缩的字节，每个响应都要声明
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        String key = request.getRequestURI() + "?" + queryOf(request);
+        CachedResponse cached = cache.get(key);
+        if (isFresh(cached, version)) {
+            write(cached, request, response);
+            return;
+        }
+
+        CompletableFuture<CachedResponse> rebuild = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> inFlight = rebuilding.putIfAbsent(key, rebuild);
+        if (inFlight != null) {
+            // 已有请求在重建，等它的结果；失败或超时则自己走正常流程（不写缓存）
+            CachedResponse rebuilt = await(inFlight);
+            if (isFresh(rebuilt, version)) {
+                write(rebuilt, request, response);
+            } else {
+                filterChain.doFilter(request, response);
+            }
+            return;
+        }
+
+        CachedResponse rebuilt = null;
+        try {
+            rebuilt = capture(rule, version, request, response, filterChain);
+            if (rebuilt != null && feedVersionService.getVersion() == version) {
+                cache.put(key, rebuilt);
+                log.debug("已重建响应缓存 {}，{} 字节，列表版本 {}", key, rebuilt.body().length, version);
+            }
+        } finally {
+            rebuilding.remove(key, rebuild);
+            rebuild.complete(rebuilt);
+        }
+    }
+
+    /**
+     * 经过正常流程生成响应并记录写出的字节，只有200的JSON响应会被缓存
+     */
+    private CachedResponse capture(ResponseCacheProperties.Rule rule, long version, HttpServletRequest request,
+                                   HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, wrapper);
+            if (wrapper.getStatus() != HttpStatus.OK.value() || wrapper.getContentType() == null
+                    || !wrapper.getContentType().contains("json")) {
+                return null;
+            }
+            byte[] body = wrapper.getContentAsByteArray();
+            byte[] gzipBody = rule.isGzip() ? gzip(body) : null;
+            return new CachedResponse(version, System.currentTimeMillis() + rule.getTtl(), wrapper.getContentType(),
+                    wrapper.getHeader(HttpHeaders.ETAG), wrapper.getHeader(HttpHeaders.CACHE_CONTROL),
+                    body, gzipBody != null && gzipBody.length < body.length ? gzipBody : null);
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void write(CachedResponse cached, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (cached.etag() != null) {
+            response.setHeader(HttpHeaders.ETAG, cached.etag());
+        }
+        if (cached.cacheControl() != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cached.cacheControl());
+        }
+        if (cached.etag() != null && cached.etag().equals(stripWeak(request.getHeader(HttpHeaders.IF_NONE_MATCH)))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        byte[] body = cached.body();
+        if (cached.gzipBody() != null && acceptsGzip(request)) {
+            body = cached.gzipBody();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(cached.contentType());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private ResponseCacheProperties.Rule findRule(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String query = queryOf(request);
+        for (ResponseCacheProperties.Rule rule : properties.getRoutes().values()) {
+            if (rule.getPath().equals(uri) && rule.getQueries().contains(query)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private boolean isFresh(CachedResponse cached, long version) {
+        return cached != null && cached.version() == version && cached.expiresAt() > System.currentTimeMillis();
+    }
+
+    private CachedResponse await(CompletableFuture<CachedResponse> inFlight) {
+        try {
+            return inFlight.get(properties.getRebuildWait(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String queryOf(HttpServletRequest request) {
+        String query = request.getQueryString();
+        return query != null ? query : "";
+    }
+
+    /**
+     * 只处理单个值的If-None-Match（浏览器重新验证时的形式），其他情况按未命中返回完整响应
+     */
+    private static String stripWeak(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        String tag = ifNoneMatch.trim();
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip") && !acceptEncoding.contains("gzip;q=0");
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 缓存的响应，创建后不再修改
+     * @param version 构建时的主题列表数据版本
+     * @param gzipBody gzip后的字节，未启用或压缩后不更小时为null
+     */
+    private record CachedResponse(long version, long expiresAt, String contentType, String etag, String cacheControl,
+                                  byte[] body, byte[] gzipBody) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.v2exclone.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热点列表响应字节缓存配置（app.response-cache）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+
+    /**
+     * 同一响应正在重建时，其他请求等待的最长时间（毫秒），超时后自行查询
+     */
+    private long rebuildWait = 2000;
+
+    /**
+     * 缓存的路由，key为规则名
+     */
+    private Map<String, Rule> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class Rule {
+
+        /**
+         * 请求路径（精确匹配，只缓存GET）
+         */
+        private String path;
+
+        /**
+         * 缓存的查询串（原样比较），空字符串表示不带参数
+         */
+        private List<String> queries = new ArrayList<>(List.of(""));
+
+        /**
+         * 是否同时缓存gzip压缩后的字节
+         */
+        private boolean gzip = true;
+
+        /**
+         * 最长缓存时间（毫秒），用于让不改变列表版本的浏览数等字段定期刷新
+         */
+        private long ttl = 60000;
+    }
+}
@@ -40,8 +40,10 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.POST, "/api/replies/**").authenticated()
                 .requestMatchers("/api/nodes/**").permitAll()
                 .requestMatchers("/api/stats/**").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/search/**").permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/test/**").permitAll()
+                .requestMatchers("/api/admin/**").authenticated()
                 .requestMatchers("/oauth2/**").permitAll()
                 .requestMatchers("/login/oauth2/code/*").permitAll()
                 .anyRequest().authenticated()
@@ -14,6 +14,18 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Autowired
     private LoggingInterceptor loggingInterceptor;
 
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
+
+    @Autowired
+    private ConditionalRequestInterceptor conditionalRequestInterceptor;
+
+    @Autowired
+    private ConditionalRequestProperties conditionalRequestProperties;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(loggingInterceptor)
@@ -22,5 +34,25 @@ public class WebMvcConfig implements WebMvcConfigurer {
                         "/api/auth/login",     // 可以排除一些不需要详细日志的路径
                         "/api/health"          // 健康检查接口
                 );
+
+        // 写接口限流，只拦截配置了规则的路径
+        String[] limitedPaths = rateLimitProperties.getRoutes().values().stream()
+                .map(RateLimitProperties.Rule::getPath)
+                .distinct()
+                .toArray(String[]::new);
+        if (limitedPaths.length > 0) {
+            registry.addInterceptor(rateLimitInterceptor)
+                    .addPathPatterns(limitedPaths);
+        }
+
+        // 读接口的ETag和304，只拦截配置了规则的路径
+        String[] conditionalPaths = conditionalRequestProperties.getRoutes().values().stream()
+                .map(ConditionalRequestProperties.Rule::getPath)
+                .distinct()
+                .toArray(String[]::new);
+        if (conditionalPaths.length > 0) {
+            registry.addInterceptor(conditionalRequestInterceptor)
+                    .addPathPatterns(conditionalPaths);
+        }
     }
 }
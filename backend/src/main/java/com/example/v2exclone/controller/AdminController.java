@@ -0,0 +1,122 @@
+package com.example.v2exclone.controller;
+
+import com.example.v2exclone.config.AuthenticatedUser;
+import com.example.v2exclone.dto.CacheStatsDTO;
+import com.example.v2exclone.dto.ImportResultDTO;
+import com.example.v2exclone.dto.RevokedTokenDTO;
+import com.example.v2exclone.exception.BusinessException;
+import com.example.v2exclone.service.BulkImportService;
+import com.example.v2exclone.service.SearchIndexService;
+import com.example.v2exclone.service.TokenBlacklistService;
+import com.example.v2exclone.service.TopicCacheService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 管理控制器
+ * 只允许app.admin.usernames中配置的用户访问
+ */
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AdminController {
+
+    private static final int MAX_BLACKLIST_LIMIT = 500;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private TopicCacheService topicCacheService;
+
+    @Autowired
+    private TokenBlacklistService tokenBlacklistService;
+
+    @Value("${app.admin.usernames:}")
+    private List<String> adminUsernames;
+
+    /**
+     * 从请求体流式导入NDJSON（用户、节点、主题、回复）
+     * @return 导入结果，包括每类写入行数和每秒处理的记录数
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ImportResultDTO> importFromBody(HttpServletRequest request,
+                                                          @AuthenticationPrincipal AuthenticatedUser currentUser) throws IOException {
+        checkAdmin(currentUser);
+        return ResponseEntity.ok(bulkImportService.importStream(request.getInputStream()));
+    }
+
+    /**
+     * 导入服务器本地导入目录中的NDJSON文件
+     * @param file 相对于导入目录的文件名
+     */
+    @PostMapping("/import/file")
+    public ResponseEntity<ImportResultDTO> importFromFile(@RequestParam String file,
+                                                          @AuthenticationPrincipal AuthenticatedUser currentUser) throws IOException {
+        checkAdmin(currentUser);
+        return ResponseEntity.ok(bulkImportService.importFile(file));
+    }
+
+    /**
+     * 在后台全量重建搜索索引，重建期间旧索引照常提供查询
+     */
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<Void> rebuildSearchIndex(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        checkAdmin(currentUser);
+        searchIndexService.requestRebuild();
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * 获取主题缓存的命中统计
+     * @return 各级缓存的命中、未命中和淘汰次数
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<CacheStatsDTO>> getCacheStats(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        checkAdmin(currentUser);
+        return ResponseEntity.ok(topicCacheService.getStats());
+    }
+
+    /**
+     * 按过期时间升序分页查看token黑名单
+     * @param offset 跳过的条数
+     * @param limit 返回的条数，最多500
+     */
+    @GetMapping("/blacklist/entries")
+    public ResponseEntity<Map<String, Object>> getBlacklistEntries(@RequestParam(defaultValue = "0") long offset,
+                                                                   @RequestParam(defaultValue = "50") int limit,
+                                                                   @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        checkAdmin(currentUser);
+        if (offset < 0 || limit < 1) {
+            throw BusinessException.badRequest("分页参数不正确");
+        }
+        List<RevokedTokenDTO> entries = tokenBlacklistService.getBlacklistEntries(offset, Math.min(limit, MAX_BLACKLIST_LIMIT));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("entries", entries);
+        response.put("total", tokenBlacklistService.getBlacklistSize());
+        response.put("offset", offset);
+        return ResponseEntity.ok(response);
+    }
+
+    private void checkAdmin(AuthenticatedUser currentUser) {
+        if (currentUser == null) {
+            throw BusinessException.unauthorized("请先登录");
+        }
+        if (!adminUsernames.contains(currentUser.getUsername())) {
+            throw BusinessException.forbidden("需要管理员权限");
+        }
+    }
+}
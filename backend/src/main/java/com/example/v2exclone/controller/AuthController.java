@@ -1,11 +1,14 @@
 package com.example.v2exclone.controller;
 
 import com.example.v2exclone.common.ApiResponse;
+import com.example.v2exclone.config.AuthenticatedUser;
 import com.example.v2exclone.dto.UserDTO;
 import com.example.v2exclone.entity.User;
 import com.example.v2exclone.exception.BusinessException;
 import com.example.v2exclone.service.UserService;
 import com.example.v2exclone.service.TokenBlacklistService;
+import com.example.v2exclone.service.TokenEpochService;
+import com.example.v2exclone.util.JwtClaims;
 import com.example.v2exclone.util.JwtUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +16,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.web.bind.annotation.*;
 
@@ -37,39 +39,39 @@ public class AuthController {
     @Autowired
     private TokenBlacklistService tokenBlacklistService;
 
+    @Autowired
+    private TokenEpochService tokenEpochService;
+
     @GetMapping("/user")
-    public Map<String, Object> getCurrentUser(@AuthenticationPrincipal UserDetails userDetails,
+    public Map<String, Object> getCurrentUser(@AuthenticationPrincipal AuthenticatedUser currentUser,
                                             @AuthenticationPrincipal OAuth2User oAuth2User) {
-        User user = null;
+        UserDTO userDTO = null;
 
-        // 如果是JWT认证的用户
-        if (userDetails != null && oAuth2User == null) {
-            Optional<User> userOptional = userService.findByUsername(userDetails.getUsername());
-            if (userOptional.isPresent()) {
-                user = userOptional.get();
-            }
+        // 如果是JWT认证的用户，用户摘要走缓存
+        if (currentUser != null && oAuth2User == null) {
+            userDTO = userService.getUserSummary(currentUser.getUserId()).orElse(null);
         }
         // 如果是OAuth2认证的用户
         else if (oAuth2User != null) {
-            user = userService.processOAuth2User("github", oAuth2User.getAttributes());
+            User user = userService.processOAuth2User("github", oAuth2User.getAttributes());
+            userDTO = new UserDTO(
+                user.getId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getAvatar(),
+                user.getBio(),
+                user.getCreatedAt()
+            );
         }
 
-        if (user == null) {
+        if (userDTO == null) {
             Map<String, Object> response = new HashMap<>();
             response.put("authenticated", false);
             return response;
         }
 
-        String token = jwtUtil.generateToken(user.getId(), user.getUsername());
-
-        UserDTO userDTO = new UserDTO(
-            user.getId(),
-            user.getUsername(),
-            user.getEmail(),
-            user.getAvatar(),
-            user.getBio(),
-            user.getCreatedAt()
-        );
+        String token = jwtUtil.generateToken(userDTO.getId(), userDTO.getUsername(),
+                tokenEpochService.getEpochForIssue(userDTO.getId()));
 
         Map<String, Object> response = new HashMap<>();
         response.put("authenticated", true);
@@ -80,12 +82,12 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public Map<String, Object> logout(@AuthenticationPrincipal UserDetails userDetails,
+    public Map<String, Object> logout(@AuthenticationPrincipal AuthenticatedUser currentUser,
                                     HttpServletRequest request) {
         // 获取当前用户信息（如果有的话）
         String username = null;
-        if (userDetails != null) {
-            username = userDetails.getUsername();
+        if (currentUser != null) {
+            username = currentUser.getUsername();
             log.info("用户 {} 正在退出登录", username);
         }
 
@@ -93,9 +95,16 @@ public class AuthController {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            log.info("将用户 {} 的token加入黑名单", username);
-            // 将token加入Redis黑名单
-            tokenBlacklistService.blacklistToken(token, username);
+            // 过滤器已经验证过这个token，这里直接命中验签缓存
+            Optional<JwtClaims> claims = jwtUtil.parseToken(token);
+            if (claims.isPresent()) {
+                if (username == null) {
+                    username = claims.get().username();
+                }
+                log.info("将用户 {} 的token加入黑名单", username);
+                // 将token加入Redis黑名单
+                tokenBlacklistService.blacklistToken(token, username);
+            }
         }
 
         Map<String, Object> response = new HashMap<>();
@@ -124,14 +133,16 @@ public class AuthController {
     }
 
     @PostMapping("/logout/all")
-    public ResponseEntity<?> logoutAllDevices(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<?> logoutAllDevices(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            if (userDetails == null) {
+            if (currentUser == null) {
                 return ResponseEntity.badRequest().body(Map.of("error", "User not authenticated"));
             }
 
-            String username = userDetails.getUsername();
-            tokenBlacklistService.blacklistAllUserTokens(username);
+            String username = currentUser.getUsername();
+            // 提升用户的token版本，此前签发的所有token立即失效
+            tokenEpochService.revokeAllTokens(currentUser.getUserId());
+            log.info("用户 {} 已退出所有设备", username);
 
             Map<String, Object> response = new HashMap<>();
             response.put("message", "All devices logged out successfully");
@@ -1,29 +1,34 @@
 package com.example.v2exclone.controller;
 
+import com.example.v2exclone.common.CursorPage;
+import com.example.v2exclone.config.AuthenticatedUser;
 import com.example.v2exclone.dto.ReplyDTO;
-import com.example.v2exclone.entity.User;
+import com.example.v2exclone.exception.BusinessException;
 import com.example.v2exclone.service.ReplyService;
-import com.example.v2exclone.service.UserService;
+import com.example.v2exclone.service.ReplyStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/replies")
 @CrossOrigin(origins = "http://localhost:3000")
 public class ReplyController {
+
+    private static final int MAX_PAGE_SIZE = 100;
     
     @Autowired
     private ReplyService replyService;
-    
+
     @Autowired
-    private UserService userService;
+    private ReplyStreamService replyStreamService;
     
     @GetMapping("/topic/{topicId}")
     public ResponseEntity<List<ReplyDTO>> getRepliesByTopic(@PathVariable Long topicId) {
@@ -36,41 +41,79 @@ public class ReplyController {
     }
     
     @GetMapping("/topic/{topicId}/page")
-    public ResponseEntity<Page<ReplyDTO>> getRepliesByTopicPaged(
+    public ResponseEntity<?> getRepliesByTopicPaged(
             @PathVariable Long topicId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
         try {
-            Page<ReplyDTO> replies = replyService.getRepliesByTopic(topicId, page, size);
+            // 传了cursor参数（第一页可以传空字符串）时使用游标分页
+            if (cursor != null) {
+                CursorPage<ReplyDTO> replies = replyService.getRepliesByTopic(topicId, cursor, clampSize(size));
+                return ResponseEntity.ok(replies);
+            }
+            Page<ReplyDTO> replies = replyService.getRepliesByTopic(topicId, Math.max(page, 0), clampSize(size));
             return ResponseEntity.ok(replies);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    /**
+     * 流式导出主题的全部回复，适合回复很多的长帖
+     * @param format ndjson（默认，每行一条回复）或json（JSON数组）
+     */
+    @GetMapping("/topic/{topicId}/export")
+    public ResponseEntity<StreamingResponseBody> exportRepliesByTopic(
+            @PathVariable Long topicId,
+            @RequestParam(defaultValue = "ndjson") String format) {
+        if (!replyService.topicExists(topicId)) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean jsonArray = "json".equalsIgnoreCase(format);
+        StreamingResponseBody body = out -> replyService.exportReplies(topicId, jsonArray, out);
+        return ResponseEntity.ok()
+                .contentType(jsonArray ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
+    /**
+     * 订阅主题的新回复（Server-Sent Events）
+     * 事件：ready（已连接）、reply（新回复）、resync（有回复未能送达，需要重新拉取）
+     */
+    @GetMapping(value = "/topic/{topicId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamReplies(
+            @PathVariable Long topicId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (!replyService.topicExists(topicId)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(replyStreamService.subscribe(topicId, lastEventId));
+        } catch (BusinessException e) {
+            // 连接数已满时返回503，EventSource会在稍后自动重连
+            return ResponseEntity.status(e.getCode()).build();
+        }
+    }
+    
     @PostMapping
     public ResponseEntity<ReplyDTO> createReply(
             @RequestBody CreateReplyRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
             // 检查用户是否已登录
-            if (userDetails == null) {
+            if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
-            
-            // 从UserDetails中获取用户信息
-            Optional<User> userOptional = userService.findByUsername(userDetails.getUsername());
-            if (!userOptional.isPresent()) {
-                return ResponseEntity.status(401).build();
-            }
-            
-            User currentUser = userOptional.get();
             ReplyDTO reply = replyService.createReply(
                 request.getContent(),
-                currentUser.getId(),
+                currentUser.getUserId(),
                 request.getTopicId()
             );
             return ResponseEntity.ok(reply);
+        } catch (BusinessException e) {
+            // 写入队列已满时返回503，客户端可以稍后重试
+            return ResponseEntity.status(e.getCode()).build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -82,7 +125,7 @@ public class ReplyController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         try {
-            Page<ReplyDTO> replies = replyService.getRepliesByAuthor(authorId, page, size);
+            Page<ReplyDTO> replies = replyService.getRepliesByAuthor(authorId, Math.max(page, 0), clampSize(size));
             return ResponseEntity.ok(replies);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -99,6 +142,13 @@ public class ReplyController {
         }
     }
     
+    /**
+     * 每页大小限制在1到MAX_PAGE_SIZE之间，避免负数导致查询报错或一次读取过多数据
+     */
+    private static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
     // Inner class for request body
     public static class CreateReplyRequest {
         private String content;
@@ -0,0 +1,64 @@
+package com.example.v2exclone.controller;
+
+import com.example.v2exclone.dto.NodeDTO;
+import com.example.v2exclone.dto.TopicDTO;
+import com.example.v2exclone.exception.BusinessException;
+import com.example.v2exclone.service.NodeService;
+import com.example.v2exclone.service.TopicService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = "http://localhost:3000")
+public class SearchController {
+
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int MAX_PAGE_SIZE = 50;
+
+    @Autowired
+    private TopicService topicService;
+
+    @Autowired
+    private NodeService nodeService;
+
+    /**
+     * 搜索主题
+     * @param q 关键词
+     * @param nodeId 按节点ID过滤，可传多个
+     * @param node 按节点slug过滤，可传多个
+     */
+    @GetMapping
+    public ResponseEntity<Page<TopicDTO>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) List<Long> nodeId,
+            @RequestParam(required = false) List<String> node,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (q.isBlank() || q.length() > MAX_QUERY_LENGTH || page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw BusinessException.badRequest("搜索参数不正确");
+        }
+        Set<Long> nodeIds = new HashSet<>();
+        if (nodeId != null) {
+            nodeIds.addAll(nodeId);
+        }
+        if (node != null) {
+            for (String slug : node) {
+                nodeService.getNodeBySlug(slug).map(NodeDTO::getId).ifPresent(nodeIds::add);
+            }
+            // 指定的节点都不存在时没有结果，而不是退化为搜索全部
+            if (nodeIds.isEmpty()) {
+                return ResponseEntity.ok(new PageImpl<>(List.of(), PageRequest.of(page, size), 0));
+            }
+        }
+        return ResponseEntity.ok(topicService.searchTopics(q, nodeIds, page, size));
+    }
+}
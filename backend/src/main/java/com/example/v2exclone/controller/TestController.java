@@ -1,6 +1,7 @@
 package com.example.v2exclone.controller;
 
 import com.example.v2exclone.entity.User;
+import com.example.v2exclone.service.TokenEpochService;
 import com.example.v2exclone.service.UserService;
 import com.example.v2exclone.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,13 +23,17 @@ public class TestController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenEpochService tokenEpochService;
+
     @GetMapping("/generate-token/{userId}")
     public ResponseEntity<?> generateTestToken(@PathVariable Long userId) {
         try {
             Optional<User> userOptional = userService.findById(userId);
             if (userOptional.isPresent()) {
                 User user = userOptional.get();
-                String token = jwtUtil.generateToken(user.getId(), user.getUsername());
+                String token = jwtUtil.generateToken(user.getId(), user.getUsername(),
+                        tokenEpochService.getEpochForIssue(user.getId()));
                 
                 Map<String, Object> response = new HashMap<>();
                 response.put("token", token);
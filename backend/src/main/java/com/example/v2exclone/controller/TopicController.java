@@ -1,14 +1,14 @@
 package com.example.v2exclone.controller;
 
+import com.example.v2exclone.common.CursorPage;
+import com.example.v2exclone.config.AuthenticatedUser;
 import com.example.v2exclone.dto.TopicDTO;
-import com.example.v2exclone.entity.User;
+import com.example.v2exclone.exception.BusinessException;
 import com.example.v2exclone.service.TopicService;
-import com.example.v2exclone.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import lombok.Data;
 
@@ -20,17 +20,24 @@ import java.util.Optional;
 @CrossOrigin(origins = "http://localhost:3000")
 public class TopicController {
 
-    @Autowired
-    private TopicService topicService;
+    private static final int MAX_HOT_LIMIT = 50;
+
+    private static final int MAX_PAGE_SIZE = 100;
 
     @Autowired
-    private UserService userService;
+    private TopicService topicService;
     
     @GetMapping
-    public ResponseEntity<Page<TopicDTO>> getAllTopics(
+    public ResponseEntity<?> getAllTopics(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        Page<TopicDTO> topics = topicService.getAllTopics(page, size);
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor) {
+        // 传了cursor参数（第一页可以传空字符串）时使用游标分页
+        if (cursor != null) {
+            CursorPage<TopicDTO> topics = topicService.getTopicsByCursor(cursor, clampSize(size));
+            return ResponseEntity.ok(topics);
+        }
+        Page<TopicDTO> topics = topicService.getAllTopics(Math.max(page, 0), clampSize(size));
         return ResponseEntity.ok(topics);
     }
     
@@ -40,6 +47,33 @@ public class TopicController {
         return ResponseEntity.ok(topics);
     }
     
+    @GetMapping("/hot")
+    public ResponseEntity<List<TopicDTO>> getHotTopics(@RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_HOT_LIMIT) {
+            throw BusinessException.badRequest("limit必须在1到" + MAX_HOT_LIMIT + "之间");
+        }
+        List<TopicDTO> topics = topicService.getHotTopics(limit);
+        return ResponseEntity.ok(topics);
+    }
+
+    @GetMapping("/node/{nodeId}")
+    public ResponseEntity<Page<TopicDTO>> getTopicsByNode(
+            @PathVariable Long nodeId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<TopicDTO> topics = topicService.getTopicsByNode(nodeId, Math.max(page, 0), clampSize(size));
+        return ResponseEntity.ok(topics);
+    }
+
+    @GetMapping("/author/{authorId}")
+    public ResponseEntity<Page<TopicDTO>> getTopicsByAuthor(
+            @PathVariable Long authorId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<TopicDTO> topics = topicService.getTopicsByAuthor(authorId, Math.max(page, 0), clampSize(size));
+        return ResponseEntity.ok(topics);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<TopicDTO> getTopicById(@PathVariable Long id) {
         Optional<TopicDTO> topic = topicService.getTopicById(id);
@@ -50,24 +84,16 @@ public class TopicController {
     @PostMapping
     public ResponseEntity<TopicDTO> createTopic(
             @RequestBody CreateTopicRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
             // 检查用户是否已登录
-            if (userDetails == null) {
-                return ResponseEntity.status(401).build();
-            }
-
-            // 从UserDetails中获取用户信息
-            Optional<User> userOptional = userService.findByUsername(userDetails.getUsername());
-            if (!userOptional.isPresent()) {
+            if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
-
-            User currentUser = userOptional.get();
             TopicDTO topic = topicService.createTopic(
                 request.getTitle(),
                 request.getContent(),
-                currentUser.getId(),
+                currentUser.getUserId(),
                 request.getNodeId()
             );
             return ResponseEntity.ok(topic);
@@ -80,21 +106,13 @@ public class TopicController {
     public ResponseEntity<TopicDTO> updateTopic(
             @PathVariable Long id,
             @RequestBody UpdateTopicRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
             // 检查用户是否已登录
-            if (userDetails == null) {
-                return ResponseEntity.status(401).build();
-            }
-
-            // 从UserDetails中获取用户信息
-            Optional<User> userOptional = userService.findByUsername(userDetails.getUsername());
-            if (!userOptional.isPresent()) {
+            if (currentUser == null) {
                 return ResponseEntity.status(401).build();
             }
 
-            User currentUser = userOptional.get();
-
             // 检查主题是否存在以及用户是否有权限编辑
             Optional<TopicDTO> existingTopicOpt = topicService.getTopicById(id);
             if (!existingTopicOpt.isPresent()) {
@@ -102,7 +120,7 @@ public class TopicController {
             }
 
             TopicDTO existingTopic = existingTopicOpt.get();
-            if (!existingTopic.getAuthor().getId().equals(currentUser.getId())) {
+            if (!existingTopic.getAuthor().getId().equals(currentUser.getUserId())) {
                 return ResponseEntity.status(403).build(); // 禁止访问
             }
 
@@ -133,4 +151,11 @@ public class TopicController {
         private String content;
         private Long nodeId;
     }
+
+    /**
+     * 每页大小限制在1到MAX_PAGE_SIZE之间，避免负数导致查询报错或一次读取过多数据
+     */
+    private static int clampSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
 }
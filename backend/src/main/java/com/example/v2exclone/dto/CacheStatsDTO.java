@@ -0,0 +1,25 @@
+package com.example.v2exclone.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * 缓存统计数据传输对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CacheStatsDTO {
+
+    private String name;            // 缓存名称
+    private int size;               // 当前条目数
+    private int maxSize;            // 最大条目数
+    private long hits;              // 本地缓存命中次数
+    private long misses;            // 本地缓存未命中次数
+    private long evictions;         // 淘汰（含过期）次数
+    private long remoteHits;        // Redis缓存命中次数
+    private long remoteMisses;      // Redis缓存未命中次数
+}
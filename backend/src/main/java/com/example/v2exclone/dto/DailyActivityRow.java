@@ -0,0 +1,15 @@
+package com.example.v2exclone.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 按用户、按天聚合的发帖/回复数量投影行，用于重建活跃度索引
+ */
+public record DailyActivityRow(
+        Long userId,
+        LocalDate day,
+        Long count,
+        LocalDateTime lastAt
+) {
+}
@@ -0,0 +1,45 @@
+package com.example.v2exclone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 批量导入的一行NDJSON记录
+ * type为user、node、topic或reply；id以及authorId、nodeId、topicId均为源系统中的ID，
+ * 导入时映射为本系统的ID。被引用的记录需要出现在引用它的记录之前
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportRecord {
+    private String type;
+    private String id;
+
+    // user
+    private String username;
+    private String email;
+    private String password;        // 已加密的密码，可以为空
+    private String avatar;
+    private String bio;
+
+    // node
+    private String name;
+    private String slug;
+    private String description;
+
+    // topic / reply
+    private String title;
+    private String content;
+    private String authorId;
+    private String nodeId;
+    private String topicId;
+    private Integer viewCount;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
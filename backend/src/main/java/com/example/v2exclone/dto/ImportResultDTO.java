@@ -0,0 +1,23 @@
+package com.example.v2exclone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量导入结果
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportResultDTO {
+    private long users;             // 新写入的用户数
+    private long nodes;             // 新写入的节点数
+    private long topics;            // 写入的主题数
+    private long replies;           // 写入的回复数
+    private long skipped;           // 被跳过的记录数（重复或引用不存在）
+    private long elapsedMillis;     // 耗时
+    private long rowsPerSecond;     // 平均每秒处理的记录数
+}
@@ -1,5 +1,6 @@
 package com.example.v2exclone.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -17,4 +18,12 @@ public class NodeDTO {
     private String slug;
     private String description;
     private LocalDateTime createdAt;
+
+    // 节点下的主题数，只在节点列表/详情接口中返回
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long topicCount;
+
+    public NodeDTO(Long id, String name, String slug, String description, LocalDateTime createdAt) {
+        this(id, name, slug, description, createdAt, null);
+    }
 }
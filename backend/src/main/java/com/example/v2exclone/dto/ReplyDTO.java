@@ -14,6 +14,7 @@ import java.time.LocalDateTime;
 public class ReplyDTO {
     private Long id;
     private String content;
+    private String contentHtml;
     private LocalDateTime createdAt;
     private UserDTO author;
     private Long topicId;
@@ -0,0 +1,23 @@
+package com.example.v2exclone.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 回复导出的投影行
+ * 直接由查询构造，不进入持久化上下文，流式读取长帖时内存占用不随回复数增长
+ */
+public record ReplyExportRow(
+        Long id,
+        String content,
+        String contentHtml,
+        Integer renderVersion,
+        LocalDateTime createdAt,
+        Long topicId,
+        Long authorId,
+        String authorUsername,
+        String authorEmail,
+        String authorAvatar,
+        String authorBio,
+        LocalDateTime authorCreatedAt
+) {
+}
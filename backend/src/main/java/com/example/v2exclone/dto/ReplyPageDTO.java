@@ -0,0 +1,20 @@
+package com.example.v2exclone.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * 回复分页的缓存形式（Page对象本身无法直接反序列化）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplyPageDTO {
+    private List<ReplyDTO> content;
+    private long totalElements;
+}
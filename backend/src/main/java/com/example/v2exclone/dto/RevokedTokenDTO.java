@@ -0,0 +1,21 @@
+package com.example.v2exclone.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * 黑名单条目数据传输对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedTokenDTO {
+
+    private String revocationId;        // 吊销ID（token摘要前缀）
+    private LocalDateTime expiresAt;    // token过期时间
+}
@@ -15,6 +15,7 @@ public class TopicDTO {
     private Long id;
     private String title;
     private String content;
+    private String contentHtml;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private Integer viewCount;
@@ -0,0 +1,32 @@
+package com.example.v2exclone.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 主题列表查询的投影行
+ * 一条SQL同时取出主题、作者、节点字段以及分页总数，避免逐行懒加载和额外的COUNT查询
+ */
+public record TopicFeedRow(
+        Long id,
+        String title,
+        String content,
+        String contentHtml,
+        Integer renderVersion,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Integer viewCount,
+        Integer replyCount,
+        Long authorId,
+        String authorUsername,
+        String authorEmail,
+        String authorAvatar,
+        String authorBio,
+        LocalDateTime authorCreatedAt,
+        Long nodeId,
+        String nodeName,
+        String nodeSlug,
+        String nodeDescription,
+        LocalDateTime nodeCreatedAt,
+        Long totalCount
+) {
+}
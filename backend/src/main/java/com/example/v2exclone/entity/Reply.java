@@ -12,7 +12,9 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "replies")
+@Table(name = "replies", indexes = {
+        @Index(name = "idx_replies_topic_created_at_id", columnList = "topic_id, created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -27,6 +29,12 @@ public class Reply {
     @Size(min = 1, max = 2000)
     @Column(columnDefinition = "TEXT")
     private String content;
+
+    // 写入时由content渲染的HTML，renderVersion为渲染器版本，落后时由ContentRenderService重新渲染
+    @Column(columnDefinition = "TEXT")
+    private String contentHtml;
+
+    private Integer renderVersion;
     
     @CreationTimestamp
     private LocalDateTime createdAt;
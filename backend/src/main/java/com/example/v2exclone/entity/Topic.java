@@ -14,7 +14,9 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "topics")
+@Table(name = "topics", indexes = {
+        @Index(name = "idx_topics_created_at_id", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,6 +33,12 @@ public class Topic {
     
     @Column(columnDefinition = "TEXT")
     private String content;
+
+    // 写入时由content渲染的HTML，renderVersion为渲染器版本，落后时由ContentRenderService重新渲染
+    @Column(columnDefinition = "TEXT")
+    private String contentHtml;
+
+    private Integer renderVersion;
     
     @CreationTimestamp
     private LocalDateTime createdAt;
@@ -38,10 +46,14 @@ public class Topic {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
     
+    // 浏览数由ViewCountService通过SQL累加，实体更新时不覆盖
     @Builder.Default
+    @Column(updatable = false)
     private Integer viewCount = 0;
 
+    // 回复数由ReplyIngestionService通过SQL原子累加，实体更新时不覆盖
     @Builder.Default
+    @Column(updatable = false)
     private Integer replyCount = 0;
     
     @ManyToOne(fetch = FetchType.LAZY)
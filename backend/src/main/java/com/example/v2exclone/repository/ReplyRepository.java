@@ -1,12 +1,19 @@
 package com.example.v2exclone.repository;
 
+import com.example.v2exclone.dto.DailyActivityRow;
+import com.example.v2exclone.dto.ReplyExportRow;
 import com.example.v2exclone.entity.Reply;
 import com.example.v2exclone.entity.Topic;
 import com.example.v2exclone.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -21,9 +28,83 @@ public interface ReplyRepository extends JpaRepository<Reply, Long> {
     
     Page<Reply> findByAuthorOrderByCreatedAtDesc(User author, Pageable pageable);
     
+    /**
+     * 游标分页的第一页
+     */
+    @Query("SELECT r FROM Reply r JOIN FETCH r.author WHERE r.topic.id = :topicId ORDER BY r.createdAt ASC, r.id ASC")
+    List<Reply> findPageHead(@Param("topicId") Long topicId, Limit limit);
+
+    /**
+     * 游标分页：取(createdAt, id)严格晚于游标位置的回复
+     * createdAt >= :createdAt 作为(topic_id, created_at, id)索引的范围条件
+     */
+    @Query("""
+        SELECT r FROM Reply r JOIN FETCH r.author
+        WHERE r.topic.id = :topicId
+          AND r.createdAt >= :createdAt AND (r.createdAt > :createdAt OR r.id > :id)
+        ORDER BY r.createdAt ASC, r.id ASC
+        """)
+    List<Reply> findPageAfter(@Param("topicId") Long topicId, @Param("createdAt") LocalDateTime createdAt,
+                              @Param("id") Long id, Limit limit);
+
+    /**
+     * 游标分页：取(createdAt, id)严格早于游标位置的回复，按降序返回
+     */
+    @Query("""
+        SELECT r FROM Reply r JOIN FETCH r.author
+        WHERE r.topic.id = :topicId
+          AND r.createdAt <= :createdAt AND (r.createdAt < :createdAt OR r.id < :id)
+        ORDER BY r.createdAt DESC, r.id DESC
+        """)
+    List<Reply> findPageBefore(@Param("topicId") Long topicId, @Param("createdAt") LocalDateTime createdAt,
+                               @Param("id") Long id, Limit limit);
+
+    /**
+     * 导出的第一批回复，按时间顺序
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("""
+        SELECT new com.example.v2exclone.dto.ReplyExportRow(
+            r.id, r.content, r.contentHtml, r.renderVersion, r.createdAt, r.topic.id,
+            a.id, a.username, a.email, a.avatar, a.bio, a.createdAt)
+        FROM Reply r JOIN r.author a
+        WHERE r.topic.id = :topicId
+        ORDER BY r.createdAt ASC, r.id ASC
+        """)
+    List<ReplyExportRow> findExportHead(@Param("topicId") Long topicId, Limit limit);
+
+    /**
+     * 导出时取(createdAt, id)严格晚于上一批最后一条的回复
+     * 与findPageAfter相同的键集条件，走(topic_id, created_at, id)索引，每批都是一次独立的短查询
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query("""
+        SELECT new com.example.v2exclone.dto.ReplyExportRow(
+            r.id, r.content, r.contentHtml, r.renderVersion, r.createdAt, r.topic.id,
+            a.id, a.username, a.email, a.avatar, a.bio, a.createdAt)
+        FROM Reply r JOIN r.author a
+        WHERE r.topic.id = :topicId
+          AND r.createdAt >= :createdAt AND (r.createdAt > :createdAt OR r.id > :id)
+        ORDER BY r.createdAt ASC, r.id ASC
+        """)
+    List<ReplyExportRow> findExportAfter(@Param("topicId") Long topicId, @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id, Limit limit);
+
     long countByTopic(Topic topic);
 
     // 统计相关查询
     @Query("SELECT COUNT(r) FROM Reply r WHERE r.createdAt >= :startDate")
     long countByCreatedAtAfter(LocalDateTime startDate);
+
+    /**
+     * 按作者、按天聚合指定时间之后的回复数，用于重建活跃度索引
+     */
+    @Query("""
+        SELECT new com.example.v2exclone.dto.DailyActivityRow(
+            r.author.id, CAST(r.createdAt AS LocalDate), COUNT(r), MAX(r.createdAt))
+        FROM Reply r
+        WHERE r.createdAt >= :since
+        GROUP BY r.author.id, CAST(r.createdAt AS LocalDate)
+        """)
+    List<DailyActivityRow> findDailyActivitySince(@Param("since") LocalDateTime since);
 }
@@ -1,32 +1,157 @@
 package com.example.v2exclone.repository;
 
+import com.example.v2exclone.dto.DailyActivityRow;
+import com.example.v2exclone.dto.TopicFeedRow;
 import com.example.v2exclone.entity.Topic;
-import com.example.v2exclone.entity.Node;
-import com.example.v2exclone.entity.User;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface TopicRepository extends JpaRepository<Topic, Long> {
     
-    Page<Topic> findAllByOrderByCreatedAtDesc(Pageable pageable);
-    
-    Page<Topic> findByNodeOrderByCreatedAtDesc(Node node, Pageable pageable);
-    
-    Page<Topic> findByAuthorOrderByCreatedAtDesc(User author, Pageable pageable);
-    
-    @Query("SELECT t FROM Topic t ORDER BY t.replyCount DESC, t.createdAt DESC")
-    Page<Topic> findHotTopics(Pageable pageable);
-    
-    List<Topic> findTop10ByOrderByCreatedAtDesc();
+    String FEED_COLUMNS = """
+            t.id, t.title, t.content, t.contentHtml, t.renderVersion, t.createdAt, t.updatedAt, t.viewCount, t.replyCount,
+            a.id, a.username, a.email, a.avatar, a.bio, a.createdAt,
+            n.id, n.name, n.slug, n.description, n.createdAt
+        """;
+
+    String FEED_JOINS = """
+        FROM Topic t
+        JOIN t.author a
+        JOIN t.node n
+        """;
+
+    String FEED_SELECT = "SELECT new com.example.v2exclone.dto.TopicFeedRow(" + FEED_COLUMNS + ", COUNT(*) OVER ()) " + FEED_JOINS;
+
+    // 游标分页不计算总数，否则窗口函数会扫描全部匹配行
+    String FEED_SEEK_SELECT = "SELECT new com.example.v2exclone.dto.TopicFeedRow(" + FEED_COLUMNS + ", -1L) " + FEED_JOINS;
+
+    /**
+     * 最新主题列表，单条SQL返回分页数据和总数
+     */
+    @Query(FEED_SELECT + " ORDER BY t.createdAt DESC, t.id DESC")
+    List<TopicFeedRow> findFeed(Pageable pageable);
+
+    /**
+     * 节点下的主题列表
+     */
+    @Query(FEED_SELECT + " WHERE n.id = :nodeId ORDER BY t.createdAt DESC, t.id DESC")
+    List<TopicFeedRow> findFeedByNode(@Param("nodeId") Long nodeId, Pageable pageable);
+
+    /**
+     * 用户发布的主题列表
+     */
+    @Query(FEED_SELECT + " WHERE a.id = :authorId ORDER BY t.createdAt DESC, t.id DESC")
+    List<TopicFeedRow> findFeedByAuthor(@Param("authorId") Long authorId, Pageable pageable);
+
+    /**
+     * 游标分页：取(createdAt, id)严格早于游标位置的主题
+     * createdAt <= :createdAt 作为索引范围条件，保证直接定位到游标处而不是从头扫描
+     */
+    @Query(FEED_SEEK_SELECT + """
+        WHERE t.createdAt <= :createdAt AND (t.createdAt < :createdAt OR t.id < :id)
+        ORDER BY t.createdAt DESC, t.id DESC
+        """)
+    List<TopicFeedRow> findFeedBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    /**
+     * 游标分页：取(createdAt, id)严格晚于游标位置的主题，按升序返回
+     */
+    @Query(FEED_SEEK_SELECT + """
+        WHERE t.createdAt >= :createdAt AND (t.createdAt > :createdAt OR t.id > :id)
+        ORDER BY t.createdAt ASC, t.id ASC
+        """)
+    List<TopicFeedRow> findFeedAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Limit limit);
+
+    /**
+     * 游标分页的第一页
+     */
+    @Query(FEED_SEEK_SELECT + " ORDER BY t.createdAt DESC, t.id DESC")
+    List<TopicFeedRow> findFeedHead(Limit limit);
+
+    long countByNodeId(Long nodeId);
+
+    /**
+     * 各节点的主题数（仅用于节点目录启动预热和定期校正）
+     * @return [节点ID, 主题数]
+     */
+    @Query("SELECT t.node.id, COUNT(t) FROM Topic t GROUP BY t.node.id")
+    List<Object[]> countTopicsGroupByNode();
+
+    long countByAuthorId(Long authorId);
+
+    /**
+     * 按ID批量取主题（主键查找，用于热门排行等已知ID的场景）
+     */
+    @Query(FEED_SEEK_SELECT + " WHERE t.id IN :ids")
+    List<TopicFeedRow> findFeedByIds(@Param("ids") Collection<Long> ids);
 
     // 统计相关查询
     @Query("SELECT COUNT(t) FROM Topic t WHERE t.createdAt >= :startDate")
     long countByCreatedAtAfter(LocalDateTime startDate);
+
+    /**
+     * 按作者、按天聚合指定时间之后的发帖数，用于重建活跃度索引
+     */
+    @Query("""
+        SELECT new com.example.v2exclone.dto.DailyActivityRow(
+            t.author.id, CAST(t.createdAt AS LocalDate), COUNT(t), MAX(t.createdAt))
+        FROM Topic t
+        WHERE t.createdAt >= :since
+        GROUP BY t.author.id, CAST(t.createdAt AS LocalDate)
+        """)
+    List<DailyActivityRow> findDailyActivitySince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT t.viewCount FROM Topic t WHERE t.id = :id")
+    Integer findViewCountById(@Param("id") Long id);
+
+    @Query("SELECT MIN(t.id) FROM Topic t")
+    Long findMinId();
+
+    @Query("SELECT MAX(t.id) FROM Topic t")
+    Long findMaxId();
+
+    /**
+     * 按ID顺序锁定区间内的主题行，必须在事务中调用
+     * 使用FOR NO KEY UPDATE，与写入回复时外键检查的KEY SHARE锁不冲突，只与修改reply_count的写入互斥
+     * @return 锁定的主题ID
+     */
+    @Query(value = """
+        SELECT t.id FROM topics t
+        WHERE t.id BETWEEN :fromId AND :toId
+        ORDER BY t.id
+        FOR NO KEY UPDATE
+        """, nativeQuery = true)
+    List<Long> lockIdRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * 按ID区间用真实回复数修正reply_count
+     * 必须先在同一事务中调用lockIdRange：本语句的快照在加锁之后取得，已提交的增量都计入COUNT，
+     * 未提交的增量要等本事务提交后才能执行，不会被覆盖
+     * @param fromId 起始ID（含）
+     * @param toId 结束ID（含）
+     * @return 被修正的主题数
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE topics t SET reply_count = c.cnt
+        FROM (
+            SELECT t2.id, COUNT(r.id) AS cnt
+            FROM topics t2
+            LEFT JOIN replies r ON r.topic_id = t2.id
+            WHERE t2.id BETWEEN :fromId AND :toId
+            GROUP BY t2.id
+        ) c
+        WHERE t.id = c.id AND t.reply_count IS DISTINCT FROM c.cnt
+        """, nativeQuery = true)
+    int reconcileReplyCounts(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
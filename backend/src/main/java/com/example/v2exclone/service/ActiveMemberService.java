@@ -1,26 +1,182 @@
 package com.example.v2exclone.service;
 
 import com.example.v2exclone.dto.ActiveMemberDTO;
+import com.example.v2exclone.dto.DailyActivityRow;
+import com.example.v2exclone.dto.UserDTO;
 import com.example.v2exclone.entity.User;
+import com.example.v2exclone.repository.ReplyRepository;
+import com.example.v2exclone.repository.TopicRepository;
 import com.example.v2exclone.repository.UserRepository;
+import com.example.v2exclone.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 活跃会员服务
+ * 每个用户按天记录发帖数和回复数（环形数组，只保留最近windowDays天），发帖、回复时增量更新；
+ * 默认的7天排行榜以有序集合常驻内存，请求时直接读取前N名，不执行任何SQL。
+ * 索引定期用数据库中的按天聚合结果重建，以合并其他实例产生的活动并清理过期用户
  */
+@Slf4j
 @Service
-@Transactional(readOnly = true)
 public class ActiveMemberService {
-    
+
+    private static final int TOPIC_WEIGHT = 3;
+    private static final int REPLY_WEIGHT = 1;
+
+    private static final int DEFAULT_DAYS = 7;
+    private static final int DEFAULT_LIMIT = 6;
+
+    /**
+     * 窗口内的活动汇总
+     */
+    private record WindowStats(int topicCount, int replyCount, LocalDateTime lastActiveAt) {
+
+        int score() {
+            return topicCount * TOPIC_WEIGHT + replyCount * REPLY_WEIGHT;
+        }
+    }
+
+    /**
+     * 排行榜条目
+     */
+    private record Rank(Long userId, int score, LocalDateTime lastActiveAt) {
+    }
+
+    private static final Comparator<Rank> RANK_ORDER = Comparator.comparingInt(Rank::score).reversed()
+            .thenComparing(Rank::lastActiveAt, Comparator.reverseOrder())
+            .thenComparing(Rank::userId);
+
+    /**
+     * 单个用户的活跃度
+     * 以epochDay对数组长度取模定位桶，桶中记录的日期与当前日期不同时说明是旧数据，先清零再累加
+     */
+    private static class MemberActivity {
+
+        private final Long userId;
+        private String username;
+        private String avatar;
+        private String bio;
+
+        private final long[] slotDays;
+        private final int[] topicCounts;
+        private final int[] replyCounts;
+        private LocalDateTime lastActiveAt;
+
+        MemberActivity(Long userId, int windowDays) {
+            this.userId = userId;
+            this.slotDays = new long[windowDays];
+            this.topicCounts = new int[windowDays];
+            this.replyCounts = new int[windowDays];
+            Arrays.fill(slotDays, Long.MIN_VALUE);
+        }
+
+        synchronized void setProfile(String username, String avatar, String bio) {
+            this.username = username;
+            this.avatar = avatar;
+            this.bio = bio;
+        }
+
+        synchronized void add(LocalDate day, int topics, int replies, LocalDateTime at) {
+            long epochDay = day.toEpochDay();
+            int slot = (int) Math.floorMod(epochDay, (long) slotDays.length);
+            if (slotDays[slot] != epochDay) {
+                if (slotDays[slot] > epochDay) {
+                    // 比桶中数据还旧，已经滑出窗口
+                    return;
+                }
+                slotDays[slot] = epochDay;
+                topicCounts[slot] = 0;
+                replyCounts[slot] = 0;
+            }
+            topicCounts[slot] += topics;
+            replyCounts[slot] += replies;
+            if (lastActiveAt == null || at.isAfter(lastActiveAt)) {
+                lastActiveAt = at;
+            }
+        }
+
+        /**
+         * 汇总截止到today（含）的最近days天
+         */
+        synchronized WindowStats window(long today, int days) {
+            int topics = 0;
+            int replies = 0;
+            for (int i = 0; i < slotDays.length; i++) {
+                if (slotDays[i] > today - days && slotDays[i] <= today) {
+                    topics += topicCounts[i];
+                    replies += replyCounts[i];
+                }
+            }
+            return new WindowStats(topics, replies, lastActiveAt);
+        }
+
+        synchronized ActiveMemberDTO toDTO(WindowStats stats) {
+            return new ActiveMemberDTO(
+                userId,
+                username,
+                avatar,
+                bio,
+                stats.lastActiveAt(),
+                stats.score(),
+                stats.topicCount(),
+                stats.replyCount()
+            );
+        }
+    }
+
     @Autowired
     private UserRepository userRepository;
-    
+
+    @Autowired
+    private TopicRepository topicRepository;
+
+    @Autowired
+    private ReplyRepository replyRepository;
+
+    @Value("${app.active-members.window-days:30}")
+    private int windowDays;
+
+    @Value("${app.active-members.leaderboard-size:50}")
+    private int leaderboardSize;
+
+    private volatile Map<Long, MemberActivity> members = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    /**
+     * 默认窗口的排行榜，由this加锁保护
+     */
+    private final TreeSet<Rank> leaderboard = new TreeSet<>(RANK_ORDER);
+    private final Map<Long, Rank> ranks = new HashMap<>();
+    private long leaderboardDay = Long.MIN_VALUE;
+
+    /**
+     * 启动完成后（数据初始化之后）从数据库构建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
     /**
      * 获取最近活跃会员列表
      * @param days 最近几天内的活动
@@ -28,92 +184,180 @@ public class ActiveMemberService {
      * @return 活跃会员列表
      */
     public List<ActiveMemberDTO> getRecentActiveMembers(int days, int limit) {
-        LocalDateTime sinceDate = LocalDateTime.now().minusDays(days);
-        
-        // 获取最近活跃的用户
-        List<User> activeUsers = userRepository.findMostActiveUsers(sinceDate);
-        
-        // 转换为DTO并计算活跃度分数
-        return activeUsers.stream()
-                .limit(limit)
-                .map(user -> convertToActiveMemberDTO(user, sinceDate))
-                .collect(Collectors.toList());
-    }
-    
+        ensureLoaded();
+        int window = Math.max(1, Math.min(days, windowDays));
+        long today = LocalDate.now().toEpochDay();
+
+        if (window == DEFAULT_DAYS && limit <= leaderboardSize) {
+            return readLeaderboard(today, limit);
+        }
+
+        // 非默认窗口：在内存中扫描一遍，用大小为limit的堆取前N名
+        PriorityQueue<Rank> heap = new PriorityQueue<>(RANK_ORDER.reversed());
+        for (MemberActivity member : members.values()) {
+            WindowStats stats = member.window(today, window);
+            if (stats.score() == 0) {
+                continue;
+            }
+            heap.offer(new Rank(member.userId, stats.score(), stats.lastActiveAt()));
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<Rank> top = new ArrayList<>(heap);
+        top.sort(RANK_ORDER);
+        return toDTOs(top, today, window);
+    }
+
     /**
      * 获取默认的最近活跃会员（最近7天，最多6个）
      * @return 活跃会员列表
      */
     public List<ActiveMemberDTO> getRecentActiveMembers() {
-        return getRecentActiveMembers(7, 6);
+        return getRecentActiveMembers(DEFAULT_DAYS, DEFAULT_LIMIT);
     }
-    
+
+    /**
+     * 用户发帖后记录活跃度（在事务提交后执行）
+     */
+    public void onTopicCreated(User author, LocalDateTime createdAt) {
+        record(author.getId(), author.getUsername(), author.getAvatar(), author.getBio(), createdAt, 1, 0);
+    }
+
     /**
-     * 将User实体转换为ActiveMemberDTO
-     * @param user 用户实体
-     * @param sinceDate 统计开始时间
-     * @return ActiveMemberDTO
+     * 用户回复后记录活跃度（在事务提交后执行）
      */
-    private ActiveMemberDTO convertToActiveMemberDTO(User user, LocalDateTime sinceDate) {
-        // 计算用户在指定时间段内的活动数据
-        long topicCount = userRepository.countTopicsByUserSince(user.getId(), sinceDate);
-        long replyCount = userRepository.countRepliesByUserSince(user.getId(), sinceDate);
-        
-        // 计算活跃度分数：主题权重3，回复权重1
-        int activityScore = (int) (topicCount * 3 + replyCount);
-        
-        // 确定最后活跃时间（取最近的主题或回复时间）
-        LocalDateTime lastActiveAt = getLastActiveTime(user, sinceDate);
-        
-        return new ActiveMemberDTO(
-            user.getId(),
-            user.getUsername(),
-            user.getAvatar(),
-            user.getBio(),
-            lastActiveAt,
-            activityScore,
-            (int) topicCount,
-            (int) replyCount
-        );
-    }
-    
+    public void onReplyCreated(UserDTO author, LocalDateTime createdAt) {
+        record(author.getId(), author.getUsername(), author.getAvatar(), author.getBio(), createdAt, 0, 1);
+    }
+
+    /**
+     * 用户资料变更后同步索引中的展示信息
+     */
+    public void onProfileUpdated(User user) {
+        MemberActivity member = members.get(user.getId());
+        if (member != null) {
+            member.setProfile(user.getUsername(), user.getAvatar(), user.getBio());
+        }
+    }
+
+    /**
+     * 用数据库中最近windowDays天的按天聚合结果重建索引，然后整体替换
+     * 重建期间新产生的少量活动可能丢失，由下一次重建补上
+     */
+    @Scheduled(cron = "${app.active-members.rebuild-cron:0 5 * * * *}")
+    public void rebuild() {
+        try {
+            LocalDate today = LocalDate.now();
+            LocalDateTime since = today.minusDays(windowDays - 1).atStartOfDay();
+
+            Map<Long, MemberActivity> rebuilt = new ConcurrentHashMap<>();
+            for (DailyActivityRow row : topicRepository.findDailyActivitySince(since)) {
+                rebuilt.computeIfAbsent(row.userId(), id -> new MemberActivity(id, windowDays))
+                        .add(row.day(), row.count().intValue(), 0, row.lastAt());
+            }
+            for (DailyActivityRow row : replyRepository.findDailyActivitySince(since)) {
+                rebuilt.computeIfAbsent(row.userId(), id -> new MemberActivity(id, windowDays))
+                        .add(row.day(), 0, row.count().intValue(), row.lastAt());
+            }
+            for (User user : userRepository.findAllById(rebuilt.keySet())) {
+                rebuilt.get(user.getId()).setProfile(user.getUsername(), user.getAvatar(), user.getBio());
+            }
+
+            members = rebuilt;
+            synchronized (this) {
+                rebuildLeaderboard(today.toEpochDay());
+            }
+            loaded = true;
+            log.debug("活跃度索引已重建，共 {} 个活跃用户", rebuilt.size());
+        } catch (Exception e) {
+            log.warn("重建活跃度索引失败: {}", e.getMessage());
+        }
+    }
+
+    private void record(Long userId, String username, String avatar, String bio,
+                        LocalDateTime createdAt, int topics, int replies) {
+        LocalDateTime at = createdAt != null ? createdAt : LocalDateTime.now();
+
+        TransactionUtils.afterCommit(() -> {
+            MemberActivity member = members.computeIfAbsent(userId, id -> new MemberActivity(id, windowDays));
+            member.setProfile(username, avatar, bio);
+            member.add(at.toLocalDate(), topics, replies, at);
+            updateLeaderboard(member);
+        });
+    }
+
+    private synchronized void updateLeaderboard(MemberActivity member) {
+        long today = LocalDate.now().toEpochDay();
+        if (today != leaderboardDay) {
+            rebuildLeaderboard(today);
+            return;
+        }
+        WindowStats stats = member.window(today, DEFAULT_DAYS);
+        Rank previous = ranks.remove(member.userId);
+        if (previous != null) {
+            leaderboard.remove(previous);
+        }
+        insertRank(new Rank(member.userId, stats.score(), stats.lastActiveAt()));
+    }
+
+    private synchronized List<ActiveMemberDTO> readLeaderboard(long today, int limit) {
+        if (today != leaderboardDay) {
+            // 跨天后窗口整体滑动，排行榜需要重算
+            rebuildLeaderboard(today);
+        }
+        List<Rank> top = new ArrayList<>(limit);
+        Iterator<Rank> iterator = leaderboard.iterator();
+        while (iterator.hasNext() && top.size() < limit) {
+            top.add(iterator.next());
+        }
+        return toDTOs(top, today, DEFAULT_DAYS);
+    }
+
     /**
-     * 获取用户最后活跃时间
-     * @param user 用户
-     * @param sinceDate 统计开始时间
-     * @return 最后活跃时间
+     * 全量重算默认窗口的排行榜，只在跨天和重建索引时执行
+     * 同一天内分数只增不减，被挤出前N名的用户不可能在不产生新活动的情况下重新进入，因此增量维护是精确的
      */
-    private LocalDateTime getLastActiveTime(User user, LocalDateTime sinceDate) {
-        LocalDateTime lastTopicTime = null;
-        LocalDateTime lastReplyTime = null;
-        
-        // 获取最近的主题时间
-        if (user.getTopics() != null && !user.getTopics().isEmpty()) {
-            lastTopicTime = user.getTopics().stream()
-                    .filter(topic -> topic.getCreatedAt().isAfter(sinceDate))
-                    .map(topic -> topic.getCreatedAt())
-                    .max(LocalDateTime::compareTo)
-                    .orElse(null);
-        }
-        
-        // 获取最近的回复时间
-        if (user.getReplies() != null && !user.getReplies().isEmpty()) {
-            lastReplyTime = user.getReplies().stream()
-                    .filter(reply -> reply.getCreatedAt().isAfter(sinceDate))
-                    .map(reply -> reply.getCreatedAt())
-                    .max(LocalDateTime::compareTo)
-                    .orElse(null);
-        }
-        
-        // 返回最近的时间
-        if (lastTopicTime != null && lastReplyTime != null) {
-            return lastTopicTime.isAfter(lastReplyTime) ? lastTopicTime : lastReplyTime;
-        } else if (lastTopicTime != null) {
-            return lastTopicTime;
-        } else if (lastReplyTime != null) {
-            return lastReplyTime;
-        } else {
-            return user.getUpdatedAt(); // 如果没有活动，返回用户更新时间
+    private void rebuildLeaderboard(long today) {
+        leaderboard.clear();
+        ranks.clear();
+        leaderboardDay = today;
+        for (MemberActivity member : members.values()) {
+            WindowStats stats = member.window(today, DEFAULT_DAYS);
+            insertRank(new Rank(member.userId, stats.score(), stats.lastActiveAt()));
+        }
+    }
+
+    private void insertRank(Rank rank) {
+        if (rank.score() == 0) {
+            return;
+        }
+        leaderboard.add(rank);
+        ranks.put(rank.userId(), rank);
+        if (leaderboard.size() > leaderboardSize) {
+            Rank evicted = leaderboard.pollLast();
+            ranks.remove(evicted.userId());
+        }
+    }
+
+    private List<ActiveMemberDTO> toDTOs(List<Rank> top, long today, int days) {
+        List<ActiveMemberDTO> result = new ArrayList<>(top.size());
+        for (Rank rank : top) {
+            MemberActivity member = members.get(rank.userId());
+            if (member != null) {
+                result.add(member.toDTO(member.window(today, days)));
+            }
+        }
+        return result;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    rebuild();
+                }
+            }
         }
     }
 }
@@ -0,0 +1,492 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.dto.ImportRecord;
+import com.example.v2exclone.dto.ImportResultDTO;
+import com.example.v2exclone.exception.BusinessException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 批量导入服务
+ * 流式读取NDJSON，按类型各自攒满一批后用一条多行INSERT（unnest数组）写入，每批单独提交，
+ * 内存占用只与批大小有关。源系统ID到本系统ID的映射保存在import_id_map表中，
+ * 外键按批一次查询解析；同一文件可以先后包含用户、节点、主题和回复，
+ * 写入主题或回复之前会先刷新它们可能引用的待写入批次
+ */
+@Slf4j
+@Service
+public class BulkImportService {
+
+    private static final int KIND_USER = 1;
+    private static final int KIND_NODE = 2;
+    private static final int KIND_TOPIC = 3;
+
+    private static final String CREATE_ID_MAP_SQL = """
+            CREATE TABLE IF NOT EXISTS import_id_map (
+                kind SMALLINT NOT NULL,
+                source_id TEXT NOT NULL,
+                target_id BIGINT NOT NULL,
+                PRIMARY KEY (kind, source_id)
+            )
+            """;
+
+    private static final String SAVE_ID_MAP_SQL = """
+            INSERT INTO import_id_map (kind, source_id, target_id)
+            SELECT ?, v.source_id, v.target_id FROM unnest(?::text[], ?::bigint[]) AS v(source_id, target_id)
+            ON CONFLICT (kind, source_id) DO UPDATE SET target_id = EXCLUDED.target_id
+            """;
+
+    private static final String RESOLVE_SQL =
+            "SELECT source_id, target_id FROM import_id_map WHERE kind = ? AND source_id = ANY(?::text[])";
+
+    /**
+     * 用户名或邮箱已存在的用户不覆盖，按用户名映射到已有用户
+     */
+    private static final String INSERT_USERS_SQL = """
+            INSERT INTO users (username, email, password, avatar, bio, provider, created_at, updated_at)
+            SELECT v.username, v.email, v.password, v.avatar, v.bio, 'LOCAL', v.created_at, v.created_at
+            FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::timestamp[])
+                AS v(username, email, password, avatar, bio, created_at)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String USER_IDS_SQL = "SELECT username, id FROM users WHERE username = ANY(?::text[])";
+
+    private static final String INSERT_NODES_SQL = """
+            INSERT INTO nodes (name, slug, description, created_at)
+            SELECT * FROM unnest(?::text[], ?::text[], ?::text[], ?::timestamp[])
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String NODE_IDS_SQL = "SELECT slug, id FROM nodes WHERE slug = ANY(?::text[])";
+
+    private static final String NEXT_TOPIC_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('topics', 'id')) FROM generate_series(1, ?)";
+
+    private static final String INSERT_TOPICS_SQL = """
+            INSERT INTO topics (id, title, content, created_at, updated_at, view_count, reply_count, author_id, node_id)
+            SELECT v.id, v.title, v.content, v.created_at, v.updated_at, v.view_count, 0, v.author_id, v.node_id
+            FROM unnest(?::bigint[], ?::text[], ?::text[], ?::timestamp[], ?::timestamp[], ?::int[], ?::bigint[], ?::bigint[])
+                AS v(id, title, content, created_at, updated_at, view_count, author_id, node_id)
+            """;
+
+    private static final String INSERT_REPLIES_SQL = """
+            INSERT INTO replies (content, created_at, author_id, topic_id)
+            SELECT * FROM unnest(?::text[], ?::timestamp[], ?::bigint[], ?::bigint[])
+            """;
+
+    private static final String REPLY_COUNT_SQL = """
+            UPDATE topics t SET reply_count = t.reply_count + v.delta
+            FROM (SELECT unnest(?::bigint[]) AS id, unnest(?::bigint[]) AS delta) v
+            WHERE t.id = v.id
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NodeService nodeService;
+
+    @Autowired
+    private CommunityStatsService communityStatsService;
+
+    @Autowired
+    private ActiveMemberService activeMemberService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private ContentRenderService contentRenderService;
+
+    @Autowired
+    private FeedVersionService feedVersionService;
+
+    @Value("${app.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.import.base-dir:./import}")
+    private String baseDir;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 导入服务器本地目录中的NDJSON文件
+     * @param fileName 相对于app.import.base-dir的文件名
+     */
+    public ImportResultDTO importFile(String fileName) throws IOException {
+        Path base = Path.of(baseDir).toAbsolutePath().normalize();
+        Path file = base.resolve(fileName).normalize();
+        if (!file.startsWith(base) || !Files.isRegularFile(file)) {
+            throw BusinessException.badRequest("导入文件不存在: " + fileName);
+        }
+        try (InputStream input = Files.newInputStream(file)) {
+            return importStream(input);
+        }
+    }
+
+    /**
+     * 流式导入NDJSON
+     * 每批单独提交，中途失败时已提交的批次会保留
+     * @param input NDJSON输入流
+     */
+    public ImportResultDTO importStream(InputStream input) throws IOException {
+        jdbcTemplate.execute(CREATE_ID_MAP_SQL);
+        ImportSession session = new ImportSession();
+        try (MappingIterator<ImportRecord> records = objectMapper.readerFor(ImportRecord.class).readValues(input)) {
+            while (records.hasNextValue()) {
+                session.add(records.nextValue());
+            }
+        } catch (RuntimeJsonMappingException | JsonProcessingException e) {
+            // 之前的批次已经提交，修正文件后可以从出错的记录处继续导入
+            throw BusinessException.badRequest("第 " + (session.read + 1) + " 条记录格式错误: " + e.getMessage());
+        }
+        session.flushAll();
+
+        ImportResultDTO result = session.result();
+        log.info("批量导入完成: {} 用户, {} 节点, {} 主题, {} 回复, 跳过 {} 条, 耗时 {}ms, {} 条/秒",
+                result.getUsers(), result.getNodes(), result.getTopics(), result.getReplies(),
+                result.getSkipped(), result.getElapsedMillis(), result.getRowsPerSecond());
+        refreshDerivedData();
+        return result;
+    }
+
+    /**
+     * 导入绕过了各服务的写入钩子，完成后重新校正内存中的计数和排行，并在后台重建搜索索引、渲染导入的正文
+     */
+    private void refreshDerivedData() {
+        try {
+            nodeService.reconcileTopicCounts();
+            communityStatsService.reconcile();
+            activeMemberService.rebuild();
+            searchIndexService.requestRebuild();
+            contentRenderService.requestRerender();
+            feedVersionService.onFeedChanged();
+        } catch (Exception e) {
+            log.warn("导入后刷新统计数据失败，将由定时任务校正: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一次导入的缓冲区和计数
+     */
+    private class ImportSession {
+
+        private final long startNanos = System.nanoTime();
+
+        private List<ImportRecord> users = new ArrayList<>();
+        private List<ImportRecord> nodes = new ArrayList<>();
+        private List<ImportRecord> topics = new ArrayList<>();
+        private List<ImportRecord> replies = new ArrayList<>();
+
+        private long read;
+        private long userCount;
+        private long nodeCount;
+        private long topicCount;
+        private long replyCount;
+        private long skipped;
+        private long nextProgressLog = 100_000;
+
+        void add(ImportRecord record) {
+            read++;
+            String type = record.getType() != null ? record.getType() : "";
+            switch (type) {
+                case "user" -> {
+                    users.add(record);
+                    if (users.size() >= batchSize) {
+                        flushUsers();
+                    }
+                }
+                case "node" -> {
+                    nodes.add(record);
+                    if (nodes.size() >= batchSize) {
+                        flushNodes();
+                    }
+                }
+                case "topic" -> {
+                    topics.add(record);
+                    if (topics.size() >= batchSize) {
+                        flushTopics();
+                    }
+                }
+                case "reply" -> {
+                    replies.add(record);
+                    if (replies.size() >= batchSize) {
+                        flushReplies();
+                    }
+                }
+                default -> skipped++;
+            }
+            if (read >= nextProgressLog) {
+                log.info("批量导入进度: 已读取 {} 条, {} 条/秒", read, rowsPerSecond());
+                nextProgressLog += 100_000;
+            }
+        }
+
+        void flushAll() {
+            flushUsers();
+            flushNodes();
+            flushTopics();
+            flushReplies();
+        }
+
+        void flushUsers() {
+            if (users.isEmpty()) {
+                return;
+            }
+            List<ImportRecord> batch = distinct(users, ImportRecord::getUsername);
+            skipped += users.size() - batch.size();
+            users = new ArrayList<>();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                int inserted = jdbcTemplate.update(INSERT_USERS_SQL, ps -> {
+                    setArray(ps, 1, "text", batch, ImportRecord::getUsername);
+                    setArray(ps, 2, "text", batch, ImportRecord::getEmail);
+                    setArray(ps, 3, "text", batch, ImportRecord::getPassword);
+                    setArray(ps, 4, "text", batch, ImportRecord::getAvatar);
+                    setArray(ps, 5, "text", batch, ImportRecord::getBio);
+                    setArray(ps, 6, "timestamp", batch, record -> timestamp(record.getCreatedAt()));
+                });
+                userCount += inserted;
+                skipped += batch.size() - inserted;
+                mapByNaturalKey(KIND_USER, USER_IDS_SQL, batch, ImportRecord::getUsername);
+            });
+        }
+
+        void flushNodes() {
+            if (nodes.isEmpty()) {
+                return;
+            }
+            List<ImportRecord> batch = distinct(nodes, ImportRecord::getSlug);
+            skipped += nodes.size() - batch.size();
+            nodes = new ArrayList<>();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                int inserted = jdbcTemplate.update(INSERT_NODES_SQL, ps -> {
+                    setArray(ps, 1, "text", batch, ImportRecord::getName);
+                    setArray(ps, 2, "text", batch, ImportRecord::getSlug);
+                    setArray(ps, 3, "text", batch, ImportRecord::getDescription);
+                    setArray(ps, 4, "timestamp", batch, record -> timestamp(record.getCreatedAt()));
+                });
+                nodeCount += inserted;
+                skipped += batch.size() - inserted;
+                mapByNaturalKey(KIND_NODE, NODE_IDS_SQL, batch, ImportRecord::getSlug);
+            });
+        }
+
+        void flushTopics() {
+            flushUsers();
+            flushNodes();
+            if (topics.isEmpty()) {
+                return;
+            }
+            List<ImportRecord> pending = topics;
+            topics = new ArrayList<>();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<String, Long> authorIds = resolve(KIND_USER, pending, ImportRecord::getAuthorId);
+                Map<String, Long> nodeIds = resolve(KIND_NODE, pending, ImportRecord::getNodeId);
+                List<ImportRecord> batch = new ArrayList<>(pending.size());
+                for (ImportRecord record : pending) {
+                    // 主题必须属于某个节点：列表、搜索查询都内连接节点，没有节点的主题会从所有列表中消失
+                    if (record.getTitle() == null || !authorIds.containsKey(record.getAuthorId())
+                            || !nodeIds.containsKey(record.getNodeId())) {
+                        skipped++;
+                    } else {
+                        batch.add(record);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                // 预先取号，源ID与新ID按位置对应
+                List<Long> ids = jdbcTemplate.queryForList(NEXT_TOPIC_IDS_SQL, Long.class, batch.size());
+                jdbcTemplate.update(INSERT_TOPICS_SQL, ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+                    setArray(ps, 2, "text", batch, ImportRecord::getTitle);
+                    setArray(ps, 3, "text", batch, ImportRecord::getContent);
+                    setArray(ps, 4, "timestamp", batch, record -> timestamp(record.getCreatedAt()));
+                    setArray(ps, 5, "timestamp", batch, record -> timestamp(
+                            record.getUpdatedAt() != null ? record.getUpdatedAt() : record.getCreatedAt()));
+                    setArray(ps, 6, "int", batch, record -> record.getViewCount() != null ? record.getViewCount() : 0);
+                    setArray(ps, 7, "bigint", batch, record -> authorIds.get(record.getAuthorId()));
+                    setArray(ps, 8, "bigint", batch, record -> nodeIds.get(record.getNodeId()));
+                });
+                topicCount += batch.size();
+
+                Map<String, Long> mapping = new LinkedHashMap<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    if (batch.get(i).getId() != null) {
+                        mapping.put(batch.get(i).getId(), ids.get(i));
+                    }
+                }
+                saveIdMap(KIND_TOPIC, mapping);
+            });
+        }
+
+        void flushReplies() {
+            flushUsers();
+            flushTopics();
+            if (replies.isEmpty()) {
+                return;
+            }
+            List<ImportRecord> pending = replies;
+            replies = new ArrayList<>();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<String, Long> authorIds = resolve(KIND_USER, pending, ImportRecord::getAuthorId);
+                Map<String, Long> topicIds = resolve(KIND_TOPIC, pending, ImportRecord::getTopicId);
+                List<ImportRecord> batch = new ArrayList<>(pending.size());
+                TreeMap<Long, Long> deltas = new TreeMap<>();
+                for (ImportRecord record : pending) {
+                    Long topicId = topicIds.get(record.getTopicId());
+                    if (record.getContent() == null || !authorIds.containsKey(record.getAuthorId()) || topicId == null) {
+                        skipped++;
+                    } else {
+                        batch.add(record);
+                        deltas.merge(topicId, 1L, Long::sum);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                jdbcTemplate.update(INSERT_REPLIES_SQL, ps -> {
+                    setArray(ps, 1, "text", batch, ImportRecord::getContent);
+                    setArray(ps, 2, "timestamp", batch, record -> timestamp(record.getCreatedAt()));
+                    setArray(ps, 3, "bigint", batch, record -> authorIds.get(record.getAuthorId()));
+                    setArray(ps, 4, "bigint", batch, record -> topicIds.get(record.getTopicId()));
+                });
+                jdbcTemplate.update(REPLY_COUNT_SQL, ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", deltas.keySet().toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", deltas.values().toArray()));
+                });
+                replyCount += batch.size();
+            });
+        }
+
+        /**
+         * 按自然键（用户名、节点slug）查出本批记录在库中的ID，保存源ID映射
+         */
+        private void mapByNaturalKey(int kind, String sql, List<ImportRecord> batch,
+                                     Function<ImportRecord, String> naturalKey) {
+            Map<String, Long> idsByKey = new HashMap<>();
+            jdbcTemplate.query(sql, ps -> setArray(ps, 1, "text", batch, naturalKey),
+                    rs -> {
+                        idsByKey.put(rs.getString(1), rs.getLong(2));
+                    });
+            Map<String, Long> mapping = new LinkedHashMap<>();
+            for (ImportRecord record : batch) {
+                Long targetId = idsByKey.get(naturalKey.apply(record));
+                if (record.getId() != null && targetId != null) {
+                    mapping.put(record.getId(), targetId);
+                }
+            }
+            saveIdMap(kind, mapping);
+        }
+
+        private Map<String, Long> resolve(int kind, List<ImportRecord> batch, Function<ImportRecord, String> sourceId) {
+            List<String> keys = batch.stream().map(sourceId).filter(key -> key != null).distinct().toList();
+            Map<String, Long> resolved = new HashMap<>();
+            if (keys.isEmpty()) {
+                return resolved;
+            }
+            jdbcTemplate.query(RESOLVE_SQL, ps -> {
+                ps.setInt(1, kind);
+                ps.setArray(2, ps.getConnection().createArrayOf("text", keys.toArray()));
+            }, rs -> {
+                resolved.put(rs.getString(1), rs.getLong(2));
+            });
+            return resolved;
+        }
+
+        private void saveIdMap(int kind, Map<String, Long> mapping) {
+            if (mapping.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.update(SAVE_ID_MAP_SQL, ps -> {
+                ps.setInt(1, kind);
+                ps.setArray(2, ps.getConnection().createArrayOf("text", mapping.keySet().toArray()));
+                ps.setArray(3, ps.getConnection().createArrayOf("bigint", mapping.values().toArray()));
+            });
+        }
+
+        private long rowsPerSecond() {
+            long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+            return read * 1_000_000_000L / elapsedNanos;
+        }
+
+        ImportResultDTO result() {
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            return new ImportResultDTO(userCount, nodeCount, topicCount, replyCount, skipped,
+                    elapsedMillis, rowsPerSecond());
+        }
+    }
+
+    /**
+     * 去掉自然键为空或在本批中重复的记录，保留第一次出现的
+     */
+    private static List<ImportRecord> distinct(List<ImportRecord> records, Function<ImportRecord, String> key) {
+        Map<String, ImportRecord> unique = new LinkedHashMap<>();
+        for (ImportRecord record : records) {
+            String value = key.apply(record);
+            if (value != null) {
+                unique.putIfAbsent(value, record);
+            }
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    private static void setArray(PreparedStatement ps, int index, String type, List<ImportRecord> batch,
+                                 Function<ImportRecord, ?> column) throws SQLException {
+        Object[] values = new Object[batch.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = column.apply(batch.get(i));
+        }
+        Array array = ps.getConnection().createArrayOf(type, values);
+        ps.setArray(index, array);
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return Timestamp.valueOf(value != null ? value : LocalDateTime.now());
+    }
+}
@@ -4,92 +4,294 @@ import com.example.v2exclone.dto.CommunityStatsDTO;
 import com.example.v2exclone.repository.UserRepository;
 import com.example.v2exclone.repository.TopicRepository;
 import com.example.v2exclone.repository.ReplyRepository;
+import com.example.v2exclone.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 社区统计服务
+ * 总数和按天的计数都保存在内存计数器中，注册、发帖、回复时增量累加，读取时不访问数据库。
+ * 计数同时累加到Redis，多实例之间定期从Redis同步，并定期用数据库中的真实值校正
  */
+@Slf4j
 @Service
-@Transactional(readOnly = true)
 public class CommunityStatsService {
-    
+
+    private static final String TOTALS_KEY = "stats:totals";
+    private static final String DAY_KEY_PREFIX = "stats:day:";
+
+    private static final String MEMBERS = "members";
+    private static final String TOPICS = "topics";
+    private static final String REPLIES = "replies";
+
+    /**
+     * 按天计数在内存和Redis中保留的天数
+     */
+    private static final int RETAINED_DAYS = 8;
+
+    /**
+     * 单日的主题数和回复数
+     */
+    private static class DayBucket {
+        final AtomicLong topics = new AtomicLong();
+        final AtomicLong replies = new AtomicLong();
+    }
+
+    private final AtomicLong totalMembers = new AtomicLong();
+    private final AtomicLong totalTopics = new AtomicLong();
+    private final AtomicLong totalReplies = new AtomicLong();
+
+    private final Map<LocalDate, DayBucket> dayBuckets = new ConcurrentHashMap<>();
+
+    private volatile boolean seeded;
+
     @Autowired
     private UserRepository userRepository;
-    
+
     @Autowired
     private TopicRepository topicRepository;
-    
+
     @Autowired
     private ReplyRepository replyRepository;
-    
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 启动完成后（数据初始化之后）初始化计数器
+     * Redis中已有计数时直接沿用，否则用数据库中的真实值初始化
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(TOTALS_KEY))) {
+                syncFromRedis();
+                seeded = true;
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("读取Redis统计计数失败，改为从数据库初始化: {}", e.getMessage());
+        }
+        reconcile();
+    }
+
     /**
      * 获取社区统计数据
      * @return 社区统计数据DTO
      */
     public CommunityStatsDTO getCommunityStats() {
-        // 获取总数统计
-        long totalMembers = userRepository.count();
-        long totalTopics = topicRepository.count();
-        long totalReplies = replyRepository.count();
-        
-        // 获取今日统计（从今天00:00:00开始）
-        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
-        long todayTopics = topicRepository.countByCreatedAtAfter(todayStart);
-        long todayReplies = replyRepository.countByCreatedAtAfter(todayStart);
-        
+        DayBucket today = dayBuckets.get(LocalDate.now());
         return new CommunityStatsDTO(
-            totalMembers,
-            totalTopics,
-            totalReplies,
-            todayTopics,
-            todayReplies
+            getTotalMembers(),
+            getTotalTopics(),
+            getTotalReplies(),
+            today != null ? today.topics.get() : 0,
+            today != null ? today.replies.get() : 0
         );
     }
-    
+
     /**
      * 获取注册会员总数
      * @return 注册会员总数
      */
     public long getTotalMembers() {
-        return userRepository.count();
+        ensureSeeded();
+        return totalMembers.get();
     }
-    
+
     /**
      * 获取主题总数
      * @return 主题总数
      */
     public long getTotalTopics() {
-        return topicRepository.count();
+        ensureSeeded();
+        return totalTopics.get();
     }
-    
+
     /**
      * 获取回复总数
      * @return 回复总数
      */
     public long getTotalReplies() {
-        return replyRepository.count();
+        ensureSeeded();
+        return totalReplies.get();
     }
-    
+
     /**
      * 获取今日主题数
      * @return 今日主题数
      */
     public long getTodayTopics() {
-        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
-        return topicRepository.countByCreatedAtAfter(todayStart);
+        ensureSeeded();
+        DayBucket today = dayBuckets.get(LocalDate.now());
+        return today != null ? today.topics.get() : 0;
     }
-    
+
     /**
      * 获取今日回复数
      * @return 今日回复数
      */
     public long getTodayReplies() {
-        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
-        return replyRepository.countByCreatedAtAfter(todayStart);
+        ensureSeeded();
+        DayBucket today = dayBuckets.get(LocalDate.now());
+        return today != null ? today.replies.get() : 0;
+    }
+
+    /**
+     * 新会员注册后计数（在事务提交后执行）
+     */
+    public void onMemberRegistered() {
+        TransactionUtils.afterCommit(() -> {
+            totalMembers.incrementAndGet();
+            incrementRemote(MEMBERS, false, 1);
+        });
+    }
+
+    /**
+     * 新主题发布后计数（在事务提交后执行）
+     */
+    public void onTopicCreated() {
+        TransactionUtils.afterCommit(() -> {
+            totalTopics.incrementAndGet();
+            bucket(LocalDate.now()).topics.incrementAndGet();
+            incrementRemote(TOPICS, true, 1);
+        });
+    }
+
+    /**
+     * 一批回复发布后计数（在事务提交后执行）
+     * @param count 本批回复数
+     */
+    public void onRepliesCreated(int count) {
+        TransactionUtils.afterCommit(() -> {
+            totalReplies.addAndGet(count);
+            bucket(LocalDate.now()).replies.addAndGet(count);
+            incrementRemote(REPLIES, true, count);
+        });
+    }
+
+    /**
+     * 定期从Redis拉取计数，合并其他实例产生的增量
+     */
+    @Scheduled(fixedDelayString = "${app.stats.sync-interval:10000}",
+            initialDelayString = "${app.stats.sync-interval:10000}")
+    public void syncFromRedis() {
+        try {
+            List<Object> totals = stringRedisTemplate.opsForHash()
+                    .multiGet(TOTALS_KEY, List.of(MEMBERS, TOPICS, REPLIES));
+            if (totals.stream().allMatch(value -> value == null)) {
+                return;
+            }
+            totalMembers.set(parse(totals.get(0)));
+            totalTopics.set(parse(totals.get(1)));
+            totalReplies.set(parse(totals.get(2)));
+
+            LocalDate today = LocalDate.now();
+            List<Object> day = stringRedisTemplate.opsForHash()
+                    .multiGet(DAY_KEY_PREFIX + today, List.of(TOPICS, REPLIES));
+            DayBucket bucket = bucket(today);
+            bucket.topics.set(parse(day.get(0)));
+            bucket.replies.set(parse(day.get(1)));
+            dayBuckets.keySet().removeIf(date -> date.isBefore(today.minusDays(RETAINED_DAYS - 1)));
+        } catch (Exception e) {
+            log.warn("从Redis同步统计计数失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 用数据库中的真实值校正计数，并写回Redis
+     * 只在启动时和低频定时任务中执行，不在请求路径上
+     */
+    @Scheduled(cron = "${app.stats.reconcile-cron:0 15 * * * *}")
+    public void reconcile() {
+        try {
+            LocalDate today = LocalDate.now();
+            LocalDateTime todayStart = today.atStartOfDay();
+            long members = userRepository.count();
+            long topics = topicRepository.count();
+            long replies = replyRepository.count();
+            long todayTopics = topicRepository.countByCreatedAtAfter(todayStart);
+            long todayReplies = replyRepository.countByCreatedAtAfter(todayStart);
+
+            totalMembers.set(members);
+            totalTopics.set(topics);
+            totalReplies.set(replies);
+            DayBucket bucket = bucket(today);
+            bucket.topics.set(todayTopics);
+            bucket.replies.set(todayReplies);
+            seeded = true;
+
+            writeRemote(today, members, topics, replies, todayTopics, todayReplies);
+            log.debug("统计计数已校正: members={}, topics={}, replies={}", members, topics, replies);
+        } catch (Exception e) {
+            log.warn("校正统计计数失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 启动事件之前就有请求进来时，先从数据库初始化一次
+     */
+    private void ensureSeeded() {
+        if (!seeded) {
+            synchronized (this) {
+                if (!seeded) {
+                    reconcile();
+                }
+            }
+        }
+    }
+
+    private DayBucket bucket(LocalDate date) {
+        return dayBuckets.computeIfAbsent(date, d -> new DayBucket());
+    }
+
+    private void incrementRemote(String field, boolean daily, long delta) {
+        try {
+            stringRedisTemplate.opsForHash().increment(TOTALS_KEY, field, delta);
+            if (daily) {
+                String dayKey = DAY_KEY_PREFIX + LocalDate.now();
+                stringRedisTemplate.opsForHash().increment(dayKey, field, delta);
+                stringRedisTemplate.expire(dayKey, Duration.ofDays(RETAINED_DAYS));
+            }
+        } catch (Exception e) {
+            // Redis不可用时只保留本地计数，下次校正时会修正
+            log.warn("累加Redis统计计数失败: {}", e.getMessage());
+        }
+    }
+
+    private void writeRemote(LocalDate today, long members, long topics, long replies,
+                             long todayTopics, long todayReplies) {
+        try {
+            stringRedisTemplate.opsForHash().putAll(TOTALS_KEY, Map.of(
+                    MEMBERS, String.valueOf(members),
+                    TOPICS, String.valueOf(topics),
+                    REPLIES, String.valueOf(replies)
+            ));
+            String dayKey = DAY_KEY_PREFIX + today;
+            stringRedisTemplate.opsForHash().putAll(dayKey, Map.of(
+                    TOPICS, String.valueOf(todayTopics),
+                    REPLIES, String.valueOf(todayReplies)
+            ));
+            stringRedisTemplate.expire(dayKey, Duration.ofDays(RETAINED_DAYS));
+        } catch (Exception e) {
+            log.warn("写入Redis统计计数失败: {}", e.getMessage());
+        }
+    }
+
+    private long parse(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : 0;
     }
 }
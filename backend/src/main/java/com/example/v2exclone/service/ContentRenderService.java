@@ -0,0 +1,179 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.common.MarkdownRenderer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 正文渲染
+ * 主题和回复在写入时把Markdown渲染为安全的HTML，与原文和渲染器版本一起保存，读取时直接返回保存的HTML。
+ * 渲染器升级后，版本落后（或批量导入时未渲染）的行在读取时临时渲染，
+ * 同时启动后由后台任务按主键分批重新渲染并写回，多实例同时运行时用SKIP LOCKED错开
+ */
+@Slf4j
+@Service
+public class ContentRenderService {
+
+    /**
+     * 按主键顺序取一批需要重新渲染的行并加锁，已被其他事务锁住的行跳过
+     * （被用户编辑锁住的行会以当前版本写入，不需要再处理）
+     */
+    private static final String SELECT_STALE_SQL = """
+            SELECT id, content FROM %s
+            WHERE id > ? AND (render_version IS NULL OR render_version < ?)
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private static final String UPDATE_SQL = """
+            UPDATE %s t SET content_html = v.content_html, render_version = ?
+            FROM unnest(?::bigint[], ?::text[]) AS v(id, content_html)
+            WHERE t.id = v.id
+            """;
+
+    private static final List<String> TABLES = List.of("topics", "replies");
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "content-render");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean rerenderPending = new AtomicBoolean();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.content-render.batch-size:500}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * 渲染Markdown原文
+     */
+    public String render(String markdown) {
+        return MarkdownRenderer.render(markdown);
+    }
+
+    /**
+     * 当前渲染器版本
+     */
+    public int version() {
+        return MarkdownRenderer.VERSION;
+    }
+
+    /**
+     * 取可直接返回的HTML：保存的版本不落后时原样返回，否则临时渲染（后台任务稍后写回）
+     * @param html 保存的HTML
+     * @param renderVersion 保存的渲染器版本，未渲染过时为null
+     * @param markdown 原文
+     */
+    public String htmlOf(String html, Integer renderVersion, String markdown) {
+        if (renderVersion != null && renderVersion >= MarkdownRenderer.VERSION) {
+            return html;
+        }
+        return MarkdownRenderer.render(markdown);
+    }
+
+    /**
+     * 启动后在后台重新渲染版本落后的行
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRerender();
+    }
+
+    /**
+     * 在后台重新渲染所有版本落后的行（批量导入等绕过写入渲染的操作之后调用）
+     * 已有一次在排队时不重复提交
+     */
+    public void requestRerender() {
+        if (!rerenderPending.compareAndSet(false, true)) {
+            return;
+        }
+        worker.execute(() -> {
+            rerenderPending.set(false);
+            try {
+                for (String table : TABLES) {
+                    long start = System.currentTimeMillis();
+                    long rendered = rerenderTable(table);
+                    if (rendered > 0) {
+                        log.info("已重新渲染 {} 中的 {} 行，耗时 {} ms", table, rendered, System.currentTimeMillis() - start);
+                    }
+                }
+            } catch (Exception e) {
+                // 未处理的行在读取时仍会临时渲染，下次启动时继续
+                log.warn("重新渲染正文失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private long rerenderTable(String table) {
+        String selectSql = String.format(SELECT_STALE_SQL, table);
+        String updateSql = String.format(UPDATE_SQL, table);
+        long rendered = 0;
+        long lastId = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long fromId = lastId;
+            Batch batch = transactionTemplate.execute(status -> {
+                List<StaleRow> rows = jdbcTemplate.query(selectSql,
+                        (rs, rowNum) -> new StaleRow(rs.getLong(1), rs.getString(2)),
+                        fromId, MarkdownRenderer.VERSION, batchSize);
+                if (rows.isEmpty()) {
+                    return null;
+                }
+                Object[] ids = rows.stream().map(StaleRow::id).toArray();
+                Object[] html = rows.stream().map(row -> MarkdownRenderer.render(row.content())).toArray();
+                jdbcTemplate.update(updateSql, ps -> {
+                    Connection connection = ps.getConnection();
+                    ps.setInt(1, MarkdownRenderer.VERSION);
+                    ps.setArray(2, connection.createArrayOf("bigint", ids));
+                    ps.setArray(3, connection.createArrayOf("text", html));
+                });
+                return new Batch(rows.get(rows.size() - 1).id(), rows.size());
+            });
+            if (batch == null) {
+                break;
+            }
+            rendered += batch.size();
+            lastId = batch.lastId();
+        }
+        return rendered;
+    }
+
+    private record StaleRow(long id, String content) {
+    }
+
+    private record Batch(long lastId, int size) {
+    }
+}
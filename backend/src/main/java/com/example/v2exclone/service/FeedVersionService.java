@@ -0,0 +1,120 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 主题列表的数据版本（高水位）
+ * 主题新建、修改、回复数变化以及作者资料（用户名、头像）变化时在Redis中递增一个全局计数，本地保存一份副本，
+ * 通过Redis频道通知其他实例，并定期与Redis对齐以防消息丢失。
+ * 版本号用作列表接口的ETag，因此只要Redis不可用、本地副本可能落后，就返回未知，不产生304
+ */
+@Slf4j
+@Service
+public class FeedVersionService {
+
+    public static final String VERSION_CHANNEL = "feed:version";
+
+    private static final String VERSION_KEY = "feed:version";
+
+    /**
+     * 版本未知
+     */
+    public static final long UNKNOWN = -1;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final AtomicLong version = new AtomicLong(UNKNOWN);
+
+    /**
+     * 有变化没能记入Redis，下次同步时补记
+     */
+    private final AtomicBoolean pendingIncrement = new AtomicBoolean();
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> onVersionMessage(message),
+                new ChannelTopic(VERSION_CHANNEL));
+    }
+
+    /**
+     * 当前版本，未知时返回UNKNOWN
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 列表数据有变化（在事务提交后递增版本）
+     */
+    public void onFeedChanged() {
+        TransactionUtils.afterCommit(this::increment);
+    }
+
+    /**
+     * 启动时以及定期与Redis中的版本对齐
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.conditional-get.version-sync-interval:5000}")
+    public void sync() {
+        try {
+            if (pendingIncrement.getAndSet(false)) {
+                increment();
+                return;
+            }
+            stringRedisTemplate.opsForValue().setIfAbsent(VERSION_KEY, "1");
+            String value = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+            version.set(value != null ? Long.parseLong(value) : UNKNOWN);
+        } catch (Exception e) {
+            log.warn("同步主题列表版本失败: {}", e.getMessage());
+            version.set(UNKNOWN);
+        }
+    }
+
+    private void increment() {
+        try {
+            Long value = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+            if (value == null) {
+                throw new IllegalStateException("INCR没有返回值");
+            }
+            version.accumulateAndGet(value, Math::max);
+            stringRedisTemplate.convertAndSend(VERSION_CHANNEL, instanceId + "|" + value);
+        } catch (Exception e) {
+            // 变化没有记入全局版本，在补记之前不能再用旧版本号应答条件请求
+            log.warn("递增主题列表版本失败: {}", e.getMessage());
+            version.set(UNKNOWN);
+            pendingIncrement.set(true);
+        }
+    }
+
+    private void onVersionMessage(Message message) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 2 || instanceId.equals(parts[0]) || pendingIncrement.get()) {
+            return;
+        }
+        long value = Long.parseLong(parts[1]);
+        // 消息可能乱序到达，版本只增不减；本地未知时等待下次同步
+        version.getAndUpdate(current -> current == UNKNOWN ? UNKNOWN : Math.max(current, value));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.dto.TopicFeedRow;
+import com.example.v2exclone.repository.TopicRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * 热门主题排行服务
+ * 回复和浏览事件按发生时间做指数衰减后累加到主题分数上，读取时直接取排行前K个，不扫描主题表
+ */
+@Slf4j
+@Service
+public class HotTopicRankingService {
+
+    @Autowired
+    private HotTopicStore hotTopicStore;
+
+    @Autowired
+    private TopicRepository topicRepository;
+
+    @Value("${app.hot-topics.half-life-hours:24}")
+    private double halfLifeHours;
+
+    @Value("${app.hot-topics.reply-weight:5}")
+    private double replyWeight;
+
+    @Value("${app.hot-topics.view-weight:1}")
+    private double viewWeight;
+
+    @Value("${app.hot-topics.capacity:1000}")
+    private int capacity;
+
+    public void recordReply(Long topicId) {
+        record(topicId, replyWeight, System.currentTimeMillis());
+    }
+
+    public void recordView(Long topicId) {
+        record(topicId, viewWeight, System.currentTimeMillis());
+    }
+
+    public void recordNewTopic(Long topicId) {
+        // 新主题以一次回复的权重进入排行，便于被看到
+        record(topicId, replyWeight, System.currentTimeMillis());
+    }
+
+    /**
+     * 获取热门主题ID，按分数降序
+     * @param limit 数量
+     */
+    public List<Long> getHotTopicIds(int limit) {
+        // Redis的ZREVRANGE 0 -1会返回整个集合，非正数直接返回空
+        if (limit <= 0) {
+            return List.of();
+        }
+        return hotTopicStore.top(limit);
+    }
+
+    private void record(Long topicId, double weight, long eventMillis) {
+        try {
+            hotTopicStore.increment(topicId, weight * decayFactor(eventMillis));
+        } catch (Exception e) {
+            // 排行只是展示用途，失败不影响主流程
+            log.warn("更新主题 {} 的热度失败: {}", topicId, e.getMessage());
+        }
+    }
+
+    /**
+     * 事件相对于epoch的权重，半衰期越短，旧事件被新事件超越得越快
+     */
+    private double decayFactor(long eventMillis) {
+        return Math.pow(2, (eventMillis - hotTopicStore.epochMillis()) / halfLifeMillis());
+    }
+
+    private double halfLifeMillis() {
+        return halfLifeHours * 3600_000;
+    }
+
+    /**
+     * 定期把epoch前移到当前时间，防止分数无限增长溢出
+     */
+    @Scheduled(fixedDelayString = "${app.hot-topics.rebase-interval:3600000}")
+    public void rebase() {
+        try {
+            hotTopicStore.rebase(System.currentTimeMillis(), halfLifeMillis());
+        } catch (Exception e) {
+            log.warn("热门主题分数rebase失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 启动时用最近的主题预热排行，已有的回复和浏览按主题创建时间计入
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            if (!hotTopicStore.isEmpty()) {
+                return;
+            }
+            List<TopicFeedRow> recent = topicRepository.findFeedHead(Limit.of(capacity));
+            for (TopicFeedRow row : recent) {
+                double weight = row.replyCount() * replyWeight + row.viewCount() * viewWeight + replyWeight;
+                long createdMillis = row.createdAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                record(row.id(), weight, createdMillis);
+            }
+            log.info("热门主题排行预热完成，共 {} 个主题", recent.size());
+        } catch (Exception e) {
+            log.warn("热门主题排行预热失败: {}", e.getMessage());
+        }
+    }
+}
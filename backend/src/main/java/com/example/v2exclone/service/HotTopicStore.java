@@ -0,0 +1,43 @@
+package com.example.v2exclone.service;
+
+import java.util.List;
+
+/**
+ * 热门主题分数存储
+ * 分数以epoch为基准做指数衰减：越晚发生的事件权重越大，定期rebase把所有分数整体缩小、epoch前移，
+ * 因此排序无需逐个重新计算衰减
+ */
+public interface HotTopicStore {
+
+    /**
+     * 累加主题分数
+     * @param topicId 主题ID
+     * @param delta 相对于当前epoch的分数增量
+     */
+    void increment(Long topicId, double delta);
+
+    /**
+     * 获取分数最高的主题ID，按分数降序
+     * @param limit 数量
+     * @return 主题ID列表
+     */
+    List<Long> top(int limit);
+
+    /**
+     * 当前分数的基准时间
+     * @return epoch毫秒数
+     */
+    long epochMillis();
+
+    /**
+     * 把分数基准前移到新的时间点
+     * @param newEpochMillis 新的epoch
+     * @param halfLifeMillis 半衰期
+     */
+    void rebase(long newEpochMillis, double halfLifeMillis);
+
+    /**
+     * 是否还没有任何分数（用于判断启动时是否需要预热）
+     */
+    boolean isEmpty();
+}
@@ -0,0 +1,93 @@
+package com.example.v2exclone.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 单实例使用的内存热门主题存储
+ * 只跟踪固定数量的候选主题（Space-Saving算法）：候选池满时新主题替换分数最低的候选并继承其分数，
+ * 内存占用与主题总数无关
+ */
+@Component
+@ConditionalOnProperty(name = "app.hot-topics.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryHotTopicStore implements HotTopicStore {
+
+    private record Candidate(Long topicId, double score) {
+    }
+
+    private static final Comparator<Candidate> BY_SCORE_DESC = Comparator
+            .comparingDouble(Candidate::score).reversed()
+            .thenComparing(Candidate::topicId);
+
+    private final Map<Long, Candidate> candidates = new HashMap<>();
+    private final TreeSet<Candidate> ranking = new TreeSet<>(BY_SCORE_DESC);
+    private final int capacity;
+    private long epochMillis = System.currentTimeMillis();
+
+    public InMemoryHotTopicStore(@Value("${app.hot-topics.capacity:1000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void increment(Long topicId, double delta) {
+        Candidate current = candidates.get(topicId);
+        double base = 0;
+        if (current != null) {
+            ranking.remove(current);
+            base = current.score();
+        } else if (candidates.size() >= capacity) {
+            // 候选池已满，淘汰分数最低的候选
+            Candidate lowest = ranking.pollLast();
+            candidates.remove(lowest.topicId());
+            base = lowest.score();
+        }
+        Candidate updated = new Candidate(topicId, base + delta);
+        candidates.put(topicId, updated);
+        ranking.add(updated);
+    }
+
+    @Override
+    public synchronized List<Long> top(int limit) {
+        List<Long> result = new ArrayList<>(Math.min(limit, ranking.size()));
+        Iterator<Candidate> iterator = ranking.iterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            result.add(iterator.next().topicId());
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized long epochMillis() {
+        return epochMillis;
+    }
+
+    @Override
+    public synchronized void rebase(long newEpochMillis, double halfLifeMillis) {
+        double factor = Math.pow(2, -(newEpochMillis - epochMillis) / halfLifeMillis);
+        List<Candidate> scaled = new ArrayList<>(ranking.size());
+        for (Candidate candidate : ranking) {
+            scaled.add(new Candidate(candidate.topicId(), candidate.score() * factor));
+        }
+        ranking.clear();
+        candidates.clear();
+        for (Candidate candidate : scaled) {
+            ranking.add(candidate);
+            candidates.put(candidate.topicId(), candidate);
+        }
+        epochMillis = newEpochMillis;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return candidates.isEmpty();
+    }
+}
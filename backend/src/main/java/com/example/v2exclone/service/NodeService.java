@@ -3,33 +3,127 @@ package com.example.v2exclone.service;
 import com.example.v2exclone.dto.NodeDTO;
 import com.example.v2exclone.entity.Node;
 import com.example.v2exclone.repository.NodeRepository;
+import com.example.v2exclone.repository.TopicRepository;
+import com.example.v2exclone.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+/**
+ * 节点服务
+ * 节点目录以不可变快照的形式常驻内存，按ID和slug都是O(1)查找；节点变更时整体替换快照，
+ * 并通过Redis发布订阅通知其他实例重新加载。各节点的主题数在发帖时增量维护
+ */
+@Slf4j
 @Service
 public class NodeService {
 
+    public static final String CATALOG_CHANNEL = "node:catalog";
+
+    /**
+     * 节点目录快照，创建后不再修改
+     */
+    private record Catalog(List<NodeDTO> nodes, Map<Long, NodeDTO> byId, Map<String, NodeDTO> bySlug, long hash) {
+
+        static Catalog of(List<NodeDTO> nodes) {
+            Map<Long, NodeDTO> byId = new HashMap<>();
+            Map<String, NodeDTO> bySlug = new HashMap<>();
+            long hash = 0;
+            for (NodeDTO node : nodes) {
+                byId.put(node.getId(), node);
+                bySlug.put(node.getSlug(), node);
+                hash = mix(hash, node.hashCode());
+            }
+            return new Catalog(List.copyOf(nodes), Map.copyOf(byId), Map.copyOf(bySlug), hash);
+        }
+    }
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final AtomicReference<Catalog> catalog = new AtomicReference<>();
+
+    private final Map<Long, AtomicLong> topicCounts = new ConcurrentHashMap<>();
+
     @Autowired
     private NodeRepository nodeRepository;
 
+    @Autowired
+    private TopicRepository topicRepository;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> onCatalogMessage(message),
+                new ChannelTopic(CATALOG_CHANNEL));
+    }
+
+    /**
+     * 启动完成后（数据初始化之后）加载节点目录和主题数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reloadCatalog();
+        reconcileTopicCounts();
+    }
+
     public List<NodeDTO> getAllNodes() {
-        return nodeRepository.findAll().stream()
-                .map(this::convertToDTO)
+        return currentCatalog().nodes().stream()
+                .map(this::withTopicCount)
                 .collect(Collectors.toList());
     }
 
     public Optional<NodeDTO> getNodeById(Long id) {
-        return nodeRepository.findById(id)
-                .map(this::convertToDTO);
+        return Optional.ofNullable(currentCatalog().byId().get(id))
+                .map(this::withTopicCount);
     }
 
     public Optional<NodeDTO> getNodeBySlug(String slug) {
-        return nodeRepository.findBySlug(slug)
-                .map(this::convertToDTO);
+        return Optional.ofNullable(currentCatalog().bySlug().get(slug))
+                .map(this::withTopicCount);
+    }
+
+    /**
+     * 节点目录的数据版本，由目录内容和各节点主题数计算，内容相同的实例得到相同的值（用作ETag）
+     */
+    public long getCatalogVersion() {
+        Catalog current = currentCatalog();
+        long version = current.hash();
+        for (NodeDTO node : current.nodes()) {
+            AtomicLong count = topicCounts.get(node.getId());
+            version = mix(version, count != null ? count.get() : 0);
+        }
+        return version;
+    }
+
+    /**
+     * 节点是否存在（只查内存目录）
+     */
+    public boolean existsById(Long id) {
+        return currentCatalog().byId().containsKey(id);
     }
 
     public NodeDTO createNode(String name, String slug, String description) {
@@ -39,9 +133,115 @@ public class NodeService {
                 .description(description)
                 .build();
         Node savedNode = nodeRepository.save(node);
+        reloadCatalog();
+        publish("reload");
         return convertToDTO(savedNode);
     }
 
+    /**
+     * 新主题发布后累加节点主题数（在事务提交后执行）
+     */
+    public void onTopicCreated(Long nodeId) {
+        TransactionUtils.afterCommit(() -> {
+            adjustTopicCount(nodeId, 1);
+            publish("count|" + nodeId + "|1");
+        });
+    }
+
+    /**
+     * 主题换节点后调整两个节点的主题数
+     */
+    public void onTopicMoved(Long fromNodeId, Long toNodeId) {
+        if (fromNodeId.equals(toNodeId)) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            adjustTopicCount(fromNodeId, -1);
+            adjustTopicCount(toNodeId, 1);
+            publish("count|" + fromNodeId + "|-1");
+            publish("count|" + toNodeId + "|1");
+        });
+    }
+
+    /**
+     * 重新从数据库加载节点目录并原子替换快照
+     */
+    public void reloadCatalog() {
+        List<NodeDTO> nodes = nodeRepository.findAll().stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        catalog.set(Catalog.of(nodes));
+        log.debug("节点目录已加载，共 {} 个节点", nodes.size());
+    }
+
+    /**
+     * 定期用数据库中的真实值校正各节点主题数
+     */
+    @Scheduled(cron = "${app.node-catalog.reconcile-cron:0 0 * * * *}")
+    public void reconcileTopicCounts() {
+        try {
+            Map<Long, Long> counts = new HashMap<>();
+            for (Object[] row : topicRepository.countTopicsGroupByNode()) {
+                counts.put((Long) row[0], (Long) row[1]);
+            }
+            topicCounts.keySet().retainAll(counts.keySet());
+            counts.forEach((nodeId, count) ->
+                    topicCounts.computeIfAbsent(nodeId, id -> new AtomicLong()).set(count));
+        } catch (Exception e) {
+            log.warn("校正节点主题数失败: {}", e.getMessage());
+        }
+    }
+
+    private Catalog currentCatalog() {
+        Catalog current = catalog.get();
+        if (current == null) {
+            reloadCatalog();
+            current = catalog.get();
+        }
+        return current;
+    }
+
+    private static long mix(long hash, long value) {
+        long h = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private void adjustTopicCount(Long nodeId, long delta) {
+        topicCounts.computeIfAbsent(nodeId, id -> new AtomicLong()).addAndGet(delta);
+    }
+
+    private NodeDTO withTopicCount(NodeDTO node) {
+        AtomicLong count = topicCounts.get(node.getId());
+        return new NodeDTO(
+                node.getId(),
+                node.getName(),
+                node.getSlug(),
+                node.getDescription(),
+                node.getCreatedAt(),
+                count != null ? count.get() : 0L
+        );
+    }
+
+    private void publish(String event) {
+        try {
+            stringRedisTemplate.convertAndSend(CATALOG_CHANNEL, instanceId + "|" + event);
+        } catch (Exception e) {
+            log.warn("广播节点目录变更失败: {}", e.getMessage());
+        }
+    }
+
+    private void onCatalogMessage(Message message) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length < 2 || instanceId.equals(parts[0])) {
+            return;
+        }
+        if ("reload".equals(parts[1])) {
+            reloadCatalog();
+        } else if ("count".equals(parts[1]) && parts.length == 4) {
+            adjustTopicCount(Long.valueOf(parts[2]), Long.parseLong(parts[3]));
+        }
+    }
+
     private NodeDTO convertToDTO(Node node) {
         return new NodeDTO(
                 node.getId(),
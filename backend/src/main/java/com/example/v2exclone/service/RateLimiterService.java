@@ -0,0 +1,112 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.config.RateLimitProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 限流服务
+ * local模式使用GCRA令牌桶：每个key只保存一个"理论到达时间"（TAT），用CAS更新，无锁；
+ * redis模式使用有序集合实现滑动窗口，所有实例共享同一个计数，Redis不可用时退回本地令牌桶
+ */
+@Slf4j
+@Service
+public class RateLimiterService {
+
+    private static final String REDIS_KEY_PREFIX = "ratelimit:";
+
+    /**
+     * 滑动窗口：清理窗口外的记录，未超限时记录本次请求并返回0，否则返回需要等待的毫秒数
+     * 使用Redis服务器时间，避免各实例时钟不一致
+     */
+    private static final RedisScript<Long> SLIDING_WINDOW_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local window = tonumber(ARGV[1])
+            local permits = tonumber(ARGV[2])
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+            if redis.call('ZCARD', KEYS[1]) < permits then
+                redis.call('ZADD', KEYS[1], now, now .. ':' .. ARGV[3])
+                redis.call('PEXPIRE', KEYS[1], window)
+                return 0
+            end
+            local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+            return math.max(1, tonumber(oldest[2]) + window - now)
+            """, Long.class);
+
+    /**
+     * 各key的理论到达时间（System.nanoTime）
+     */
+    private final Map<String, AtomicLong> arrivalTimes = new ConcurrentHashMap<>();
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    /**
+     * 尝试获取一次许可
+     * @param key 限流key，例如 create-topic:user:1
+     * @param rule 限流规则
+     * @return 0表示允许，否则为建议的重试等待时间（毫秒）
+     */
+    public long tryAcquire(String key, RateLimitProperties.Rule rule) {
+        if ("redis".equalsIgnoreCase(properties.getMode())) {
+            try {
+                Long retryAfter = stringRedisTemplate.execute(SLIDING_WINDOW_SCRIPT,
+                        List.of(REDIS_KEY_PREFIX + key),
+                        String.valueOf(rule.getPeriod()),
+                        String.valueOf(rule.getPermits()),
+                        UUID.randomUUID().toString());
+                return retryAfter != null ? retryAfter : 0;
+            } catch (Exception e) {
+                log.warn("Redis限流失败，退回本地令牌桶: {}", e.getMessage());
+            }
+        }
+        return tryAcquireLocal(key, rule);
+    }
+
+    /**
+     * GCRA：每个请求把TAT推后一个发放间隔，TAT超出当前时间的部分不能超过突发容量
+     */
+    private long tryAcquireLocal(String key, RateLimitProperties.Rule rule) {
+        long interval = TimeUnit.MILLISECONDS.toNanos(rule.getPeriod()) / Math.max(1, rule.getPermits());
+        long tolerance = interval * rule.effectiveBurst();
+        AtomicLong arrivalTime = arrivalTimes.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+
+        while (true) {
+            long now = System.nanoTime();
+            long tat = arrivalTime.get();
+            long newTat = (tat == Long.MIN_VALUE || tat - now < 0 ? now : tat) + interval;
+            long excess = newTat - now - tolerance;
+            if (excess > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(excess));
+            }
+            if (arrivalTime.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 定期清理已经回到满桶状态的key，避免内存随访问者数量无限增长
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void cleanUp() {
+        long now = System.nanoTime();
+        arrivalTimes.values().removeIf(arrivalTime -> arrivalTime.get() - now < 0);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.v2exclone.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多实例共享的Redis热门主题存储
+ * 分数保存在有序集合中，epoch保存在单独的key里，rebase通过Lua脚本原子完成
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.hot-topics.store", havingValue = "redis")
+public class RedisHotTopicStore implements HotTopicStore {
+
+    private static final String SCORES_KEY = "hot:topics";
+    private static final String EPOCH_KEY = "hot:topics:epoch";
+
+    /**
+     * 每累加这么多次裁剪一次有序集合，只保留capacity个候选
+     */
+    private static final int TRIM_EVERY = 100;
+
+    private static final RedisScript<Long> REBASE_SCRIPT = new DefaultRedisScript<>("""
+            local current = tonumber(redis.call('GET', KEYS[2]))
+            local target = tonumber(ARGV[1])
+            if current == nil then
+                redis.call('SET', KEYS[2], ARGV[1])
+                return target
+            end
+            if target <= current then
+                return current
+            end
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                local factor = 2 ^ (-(target - current) / tonumber(ARGV[2]))
+                redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', tostring(factor))
+            end
+            redis.call('SET', KEYS[2], ARGV[1])
+            return target
+            """, Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.hot-topics.capacity:1000}")
+    private int capacity;
+
+    private final AtomicInteger writesSinceTrim = new AtomicInteger();
+
+    private volatile long epochMillis = System.currentTimeMillis();
+
+    @PostConstruct
+    public void init() {
+        stringRedisTemplate.opsForValue().setIfAbsent(EPOCH_KEY, String.valueOf(epochMillis));
+        refreshEpoch();
+    }
+
+    @Override
+    public void increment(Long topicId, double delta) {
+        stringRedisTemplate.opsForZSet().incrementScore(SCORES_KEY, topicId.toString(), delta);
+        if (writesSinceTrim.incrementAndGet() >= TRIM_EVERY) {
+            writesSinceTrim.set(0);
+            stringRedisTemplate.opsForZSet().removeRange(SCORES_KEY, 0, -(capacity + 1L));
+        }
+    }
+
+    @Override
+    public List<Long> top(int limit) {
+        Set<String> members = stringRedisTemplate.opsForZSet().reverseRange(SCORES_KEY, 0, limit - 1L);
+        List<Long> result = new ArrayList<>();
+        if (members != null) {
+            for (String member : members) {
+                result.add(Long.valueOf(member));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long epochMillis() {
+        return epochMillis;
+    }
+
+    @Override
+    public void rebase(long newEpochMillis, double halfLifeMillis) {
+        Long effective = stringRedisTemplate.execute(REBASE_SCRIPT, List.of(SCORES_KEY, EPOCH_KEY),
+                String.valueOf(newEpochMillis), String.valueOf(halfLifeMillis));
+        if (effective != null) {
+            epochMillis = effective;
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        Long size = stringRedisTemplate.opsForZSet().zCard(SCORES_KEY);
+        return size == null || size == 0;
+    }
+
+    /**
+     * 其他实例可能已经rebase，定期同步epoch
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void refreshEpoch() {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(EPOCH_KEY);
+            if (value != null) {
+                epochMillis = Long.parseLong(value);
+            }
+        } catch (Exception e) {
+            log.warn("同步热门主题epoch失败: {}", e.getMessage());
+        }
+    }
+}
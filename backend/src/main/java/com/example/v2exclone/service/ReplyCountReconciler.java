@@ -0,0 +1,75 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.repository.TopicRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 回复数校正任务
+ * topics.reply_count是列表页使用的权威值，这里按ID区间分批与replies表核对并修正偏差
+ */
+@Slf4j
+@Service
+public class ReplyCountReconciler {
+
+    @Autowired
+    private TopicRepository topicRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.reply-count.reconcile-batch-size:1000}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 定时校正所有主题的回复数，每个区间单独提交，避免长事务
+     * 每个区间先锁定主题行再统计，统计期间提交的新回复不会被旧的COUNT覆盖
+     * @return 被修正的主题数
+     */
+    @Scheduled(cron = "${app.reply-count.reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        Long minId = topicRepository.findMinId();
+        Long maxId = topicRepository.findMaxId();
+        if (minId == null || maxId == null) {
+            return 0;
+        }
+
+        int repaired = 0;
+        for (long fromId = minId; fromId <= maxId; fromId += batchSize) {
+            long toId = Math.min(fromId + batchSize - 1, maxId);
+            try {
+                repaired += reconcileRange(fromId, toId);
+            } catch (Exception e) {
+                log.error("校正主题 {}-{} 的回复数失败", fromId, toId, e);
+            }
+        }
+
+        if (repaired > 0) {
+            log.info("回复数校正完成，修正了 {} 个主题", repaired);
+        }
+        return repaired;
+    }
+
+    private int reconcileRange(long fromId, long toId) {
+        Integer repaired = transactionTemplate.execute(status -> {
+            if (topicRepository.lockIdRange(fromId, toId).isEmpty()) {
+                return 0;
+            }
+            return topicRepository.reconcileReplyCounts(fromId, toId);
+        });
+        return repaired != null ? repaired : 0;
+    }
+}
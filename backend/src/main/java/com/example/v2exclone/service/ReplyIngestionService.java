@@ -0,0 +1,365 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.dto.ReplyDTO;
+import com.example.v2exclone.dto.UserDTO;
+import com.example.v2exclone.exception.BusinessException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 回复写入管道（组提交）
+ * 请求线程把回复放入有界队列后等待结果，单个写入线程每次取出队列中已有的回复（最多batch-size条），
+ * 在一个事务中用一条多行INSERT写入，并按主题聚合后用一条UPDATE累加回复数。
+ * 热门主题的一波回复因此只产生少量事务，主题行上的锁竞争也随之消失。
+ * 队列满时等待offer-timeout后返回503，作为背压。
+ * 提交后的缓存失效、计数、推送和索引更新由单独的发布线程按批次顺序执行，写入线程只访问数据库
+ */
+@Slf4j
+@Service
+public class ReplyIngestionService {
+
+    /**
+     * 预先从回复表的主键序列取号，以便把INSERT结果与请求一一对应
+     */
+    private static final String NEXT_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('replies', 'id')) FROM generate_series(1, ?)";
+
+    /**
+     * 多行写入，主题或作者不存在的行被过滤掉，RETURNING返回实际写入的ID
+     */
+    private static final String INSERT_SQL = """
+            INSERT INTO replies (id, content, content_html, render_version, created_at, author_id, topic_id)
+            SELECT v.id, v.content, v.content_html, ?, v.created_at, v.author_id, v.topic_id
+            FROM unnest(?::bigint[], ?::text[], ?::text[], ?::timestamp[], ?::bigint[], ?::bigint[])
+                AS v(id, content, content_html, created_at, author_id, topic_id)
+            WHERE EXISTS (SELECT 1 FROM topics t WHERE t.id = v.topic_id)
+              AND EXISTS (SELECT 1 FROM users u WHERE u.id = v.author_id)
+            RETURNING id
+            """;
+
+    private static final String REPLY_COUNT_SQL = """
+            UPDATE topics t SET reply_count = t.reply_count + v.delta
+            FROM (SELECT unnest(?::bigint[]) AS id, unnest(?::bigint[]) AS delta) v
+            WHERE t.id = v.id
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private HotTopicRankingService hotTopicRankingService;
+
+    @Autowired
+    private TopicCacheService topicCacheService;
+
+    @Autowired
+    private CommunityStatsService communityStatsService;
+
+    @Autowired
+    private ActiveMemberService activeMemberService;
+
+    @Autowired
+    private ReplyStreamService replyStreamService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private ContentRenderService contentRenderService;
+
+    @Autowired
+    private FeedVersionService feedVersionService;
+
+    @Value("${app.reply-ingest.queue-capacity:2000}")
+    private int queueCapacity;
+
+    @Value("${app.reply-ingest.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.reply-ingest.offer-timeout:50}")
+    private long offerTimeoutMillis;
+
+    @Value("${app.reply-ingest.await-timeout:5000}")
+    private long awaitTimeoutMillis;
+
+    private BlockingQueue<PendingReply> queue;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Thread writer;
+
+    /**
+     * 执行提交后副作用的单线程，保证各批次的失效和推送按提交顺序进行
+     */
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reply-ingest-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        writer = new Thread(this::runWriter, "reply-ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 应用关闭前停止接收新回复，并把队列中剩余的回复写完
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(awaitTimeoutMillis);
+        publisher.shutdown();
+        publisher.awaitTermination(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+        List<PendingReply> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.warn("关闭时仍有 {} 条回复未能写入", remaining.size());
+            remaining.forEach(pending -> pending.result()
+                    .completeExceptionally(new BusinessException(503, "服务正在关闭，请稍后重试")));
+        }
+    }
+
+    /**
+     * 提交一条回复并等待其所在批次提交
+     * @param content 回复内容（已校验）
+     * @param contentHtml 渲染后的HTML
+     * @param author 作者
+     * @param topicId 主题ID
+     * @return 已持久化的回复
+     */
+    public ReplyDTO submit(String content, String contentHtml, UserDTO author, Long topicId) {
+        if (!running) {
+            throw new BusinessException(503, "服务正在关闭，请稍后重试");
+        }
+        PendingReply pending = new PendingReply(
+                content, contentHtml, author, topicId, LocalDateTime.now(), new CompletableFuture<>());
+        try {
+            if (!queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new BusinessException(503, "回复提交繁忙，请稍后重试");
+            }
+            return pending.result().get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(503, "回复提交被中断");
+        } catch (TimeoutException e) {
+            // 回复仍在队列或写入中，最终可能成功，客户端应刷新后再决定是否重试
+            throw new BusinessException(503, "回复提交超时，请稍后刷新查看");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("回复写入失败", e.getCause());
+        }
+    }
+
+    private void runWriter() {
+        List<PendingReply> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingReply first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 不额外等待凑批：写入期间到达的回复自然组成下一批
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("回复写入线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingReply> batch) {
+        BatchResult result;
+        try {
+            result = transactionTemplate.execute(status -> insertBatch(batch));
+        } catch (Exception e) {
+            log.error("写入 {} 条回复失败", batch.size(), e);
+            RuntimeException failure = new RuntimeException("回复写入失败", e);
+            batch.forEach(pending -> pending.result().completeExceptionally(failure));
+            return;
+        }
+
+        List<ReplyDTO> created = new ArrayList<>(result.inserted().size());
+        for (PendingReply pending : batch) {
+            if (pending.id != null && result.inserted().contains(pending.id)) {
+                ReplyDTO reply = new ReplyDTO(pending.id, pending.content(), pending.contentHtml(),
+                        pending.createdAt(), pending.author(), pending.topicId());
+                pending.result().complete(reply);
+                created.add(reply);
+            } else {
+                pending.result().completeExceptionally(new RuntimeException("Author or Topic not found"));
+            }
+        }
+        if (!created.isEmpty()) {
+            // 缓存失效、计数、推送和索引都要访问Redis，交给发布线程；
+            // 写入线程在事务之外不做网络I/O，Redis变慢或不可用时不会拖住后续批次和等待中的请求
+            publisher.execute(() -> afterBatchCommitted(created, result.replyCounts().keySet()));
+        }
+    }
+
+    /**
+     * 一批回复提交后的副作用，在发布线程上按批次顺序执行
+     * 此时已不在事务中，各服务的提交后钩子立即执行
+     */
+    private void afterBatchCommitted(List<ReplyDTO> created, Set<Long> topicIds) {
+        try {
+            for (Long topicId : topicIds) {
+                topicCacheService.evictTopic(topicId);
+                topicCacheService.evictReplies(topicId);
+            }
+            for (ReplyDTO reply : created) {
+                hotTopicRankingService.recordReply(reply.getTopicId());
+                activeMemberService.onReplyCreated(reply.getAuthor(), reply.getCreatedAt());
+            }
+            communityStatsService.onRepliesCreated(created.size());
+            feedVersionService.onFeedChanged();
+            replyStreamService.publish(created);
+            searchIndexService.onRepliesCreated(created);
+        } catch (Exception e) {
+            log.warn("处理 {} 条新回复的提交后任务失败: {}", created.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 在一个事务中写入整批回复并累加回复数，返回实际写入的回复ID和各主题的新增回复数
+     * 只做数据库写入，副作用在提交后由发布线程处理
+     */
+    private BatchResult insertBatch(List<PendingReply> batch) {
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).id = ids.get(i);
+        }
+
+        List<Long> returned = jdbcTemplate.query(INSERT_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setInt(1, contentRenderService.version());
+            ps.setArray(2, connection.createArrayOf("bigint", batch.stream().map(p -> p.id).toArray()));
+            ps.setArray(3, connection.createArrayOf("text", batch.stream().map(PendingReply::content).toArray()));
+            ps.setArray(4, connection.createArrayOf("text", batch.stream().map(PendingReply::contentHtml).toArray()));
+            ps.setArray(5, connection.createArrayOf("timestamp",
+                    batch.stream().map(p -> Timestamp.valueOf(p.createdAt())).toArray()));
+            ps.setArray(6, connection.createArrayOf("bigint", batch.stream().map(p -> p.author().getId()).toArray()));
+            ps.setArray(7, connection.createArrayOf("bigint", batch.stream().map(PendingReply::topicId).toArray()));
+        }, (rs, rowNum) -> rs.getLong(1));
+        Set<Long> inserted = new HashSet<>(returned);
+        if (inserted.isEmpty()) {
+            return new BatchResult(inserted, Map.of());
+        }
+
+        // 按主题聚合，并按ID排序后更新，避免多实例同时写入时互相死锁
+        TreeMap<Long, Long> deltas = new TreeMap<>();
+        for (PendingReply pending : batch) {
+            if (inserted.contains(pending.id)) {
+                deltas.merge(pending.topicId(), 1L, Long::sum);
+            }
+        }
+        jdbcTemplate.update(REPLY_COUNT_SQL, ps -> {
+            Array topicIds = ps.getConnection().createArrayOf("bigint", deltas.keySet().toArray());
+            Array counts = ps.getConnection().createArrayOf("bigint", deltas.values().toArray());
+            ps.setArray(1, topicIds);
+            ps.setArray(2, counts);
+        });
+        log.debug("组提交 {} 条回复，涉及 {} 个主题", inserted.size(), deltas.size());
+        return new BatchResult(inserted, deltas);
+    }
+
+    /**
+     * 一批回复的写入结果
+     * @param inserted 实际写入的回复ID
+     * @param replyCounts 各主题新增的回复数
+     */
+    private record BatchResult(Set<Long> inserted, Map<Long, Long> replyCounts) {
+    }
+
+    /**
+     * 排队中的回复；id在写入时分配，只由写入线程访问
+     */
+    private static final class PendingReply {
+
+        private final String content;
+        private final String contentHtml;
+        private final UserDTO author;
+        private final Long topicId;
+        private final LocalDateTime createdAt;
+        private final CompletableFuture<ReplyDTO> result;
+        private Long id;
+
+        private PendingReply(String content, String contentHtml, UserDTO author, Long topicId,
+                             LocalDateTime createdAt, CompletableFuture<ReplyDTO> result) {
+            this.content = content;
+            this.contentHtml = contentHtml;
+            this.author = author;
+            this.topicId = topicId;
+            this.createdAt = createdAt;
+            this.result = result;
+        }
+
+        String content() {
+            return content;
+        }
+
+        String contentHtml() {
+            return contentHtml;
+        }
+
+        UserDTO author() {
+            return author;
+        }
+
+        Long topicId() {
+            return topicId;
+        }
+
+        LocalDateTime createdAt() {
+            return createdAt;
+        }
+
+        CompletableFuture<ReplyDTO> result() {
+            return result;
+        }
+    }
+}
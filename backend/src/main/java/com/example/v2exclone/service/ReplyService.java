@@ -1,20 +1,35 @@
 package com.example.v2exclone.service;
 
+import com.example.v2exclone.common.CursorPage;
+import com.example.v2exclone.common.PageCursor;
 import com.example.v2exclone.dto.ReplyDTO;
+import com.example.v2exclone.dto.ReplyExportRow;
+import com.example.v2exclone.dto.ReplyPageDTO;
 import com.example.v2exclone.dto.UserDTO;
 import com.example.v2exclone.entity.Reply;
 import com.example.v2exclone.entity.Topic;
 import com.example.v2exclone.entity.User;
+import com.example.v2exclone.exception.BusinessException;
 import com.example.v2exclone.repository.ReplyRepository;
 import com.example.v2exclone.repository.TopicRepository;
 import com.example.v2exclone.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -22,6 +37,16 @@ import java.util.stream.Collectors;
 @Service
 @Transactional
 public class ReplyService {
+
+    /**
+     * 回复内容最大长度，与Reply实体上的校验一致
+     */
+    private static final int MAX_CONTENT_LENGTH = 2000;
+
+    /**
+     * 导出时每批读取的回复数，每批写完刷新一次输出流
+     */
+    private static final int EXPORT_BATCH_SIZE = 500;
     
     @Autowired
     private ReplyRepository replyRepository;
@@ -33,7 +58,19 @@ public class ReplyService {
     private UserRepository userRepository;
     
     @Autowired
-    private TopicService topicService;
+    private UserService userService;
+
+    @Autowired
+    private TopicCacheService topicCacheService;
+
+    @Autowired
+    private ReplyIngestionService replyIngestionService;
+
+    @Autowired
+    private ContentRenderService contentRenderService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
     
     public List<ReplyDTO> getRepliesByTopic(Long topicId) {
         Optional<Topic> topicOptional = topicRepository.findById(topicId);
@@ -45,38 +82,99 @@ public class ReplyService {
         throw new RuntimeException("Topic not found");
     }
     
+    /**
+     * 分页获取主题回复，优先走两级缓存，缓存命中时不占用数据库连接
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Page<ReplyDTO> getRepliesByTopic(Long topicId, int page, int size) {
-        Optional<Topic> topicOptional = topicRepository.findById(topicId);
-        if (topicOptional.isPresent()) {
-            Topic topic = topicOptional.get();
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Reply> replies = replyRepository.findByTopicOrderByCreatedAtAsc(topic, pageable);
-            return replies.map(this::convertToDTO);
+        Pageable pageable = PageRequest.of(page, size);
+        ReplyPageDTO cached = topicCacheService.getReplyPage(topicId, page, size, () -> {
+            Optional<Topic> topicOptional = topicRepository.findById(topicId);
+            if (topicOptional.isPresent()) {
+                Topic topic = topicOptional.get();
+                Page<Reply> replies = replyRepository.findByTopicOrderByCreatedAtAsc(topic, pageable);
+                return new ReplyPageDTO(replies.map(this::convertToDTO).getContent(), replies.getTotalElements());
+            }
+            throw new RuntimeException("Topic not found");
+        });
+        return new PageImpl<>(cached.getContent(), pageable, cached.getTotalElements());
+    }
+    
+    /**
+     * 游标分页获取主题回复，翻页深度不影响查询耗时
+     * @param topicId 主题ID
+     * @param cursor 上一次返回的游标，为空表示第一页
+     * @param size 每页大小
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ReplyDTO> getRepliesByTopic(Long topicId, String cursor, int size) {
+        if (!topicRepository.existsById(topicId)) {
+            throw new RuntimeException("Topic not found");
         }
-        throw new RuntimeException("Topic not found");
+        PageCursor position = PageCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<Reply> rows;
+        if (position == null) {
+            rows = replyRepository.findPageHead(topicId, limit);
+        } else if (position.backward()) {
+            rows = replyRepository.findPageBefore(topicId, position.createdAt(), position.id(), limit);
+        } else {
+            rows = replyRepository.findPageAfter(topicId, position.createdAt(), position.id(), limit);
+        }
+        return CursorPage.of(rows, size, position, Reply::getCreatedAt, Reply::getId, this::convertToDTO);
     }
     
+    /**
+     * 发表回复
+     * 写入交给组提交管道，本方法不开启事务，只在排队等待结果期间占用请求线程；
+     * 正文在请求线程中渲染，不占用单个写入线程的时间
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ReplyDTO createReply(String content, Long authorId, Long topicId) {
-        Optional<User> authorOptional = userRepository.findById(authorId);
-        Optional<Topic> topicOptional = topicRepository.findById(topicId);
-        
-        if (authorOptional.isPresent() && topicOptional.isPresent()) {
-            User author = authorOptional.get();
-            Topic topic = topicOptional.get();
+        if (content == null || content.isBlank() || content.length() > MAX_CONTENT_LENGTH) {
+            throw BusinessException.badRequest("回复内容长度需在1到" + MAX_CONTENT_LENGTH + "个字符之间");
+        }
+        UserDTO author = userService.getUserSummary(authorId)
+                .orElseThrow(() -> new RuntimeException("Author or Topic not found"));
+        return replyIngestionService.submit(content, contentRenderService.render(content), author, topicId);
+    }
+    
+    public boolean topicExists(Long topicId) {
+        return topicRepository.existsById(topicId);
+    }
 
-            Reply reply = Reply.builder()
-                    .content(content)
-                    .author(author)
-                    .topic(topic)
-                    .build();
-            Reply savedReply = replyRepository.save(reply);
-            
-            // 增加主题的回复数
-            topicService.incrementReplyCount(topicId);
-            
-            return convertToDTO(savedReply);
+    /**
+     * 流式导出主题的全部回复
+     * 按(createdAt, id)键集分批读取，每批是一次独立的短查询，写出时不持有数据库连接和事务，
+     * 下载慢的客户端不会长期占用连接池；内存占用只与批大小有关
+     * 各批不在同一快照中读取，导出期间新发表的回复可能出现在结果末尾，已删除的回复可能已经写出
+     * @param topicId 主题ID
+     * @param jsonArray true输出JSON数组，false输出NDJSON（每行一条回复）
+     * @param out 响应输出流
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void exportReplies(Long topicId, boolean jsonArray, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        Limit limit = Limit.of(EXPORT_BATCH_SIZE);
+        try (SequenceWriter sequence = jsonArray
+                     ? writer.writeValuesAsArray(out)
+                     : writer.withRootValueSeparator("\n").writeValues(out)) {
+            List<ReplyExportRow> batch = replyRepository.findExportHead(topicId, limit);
+            while (!batch.isEmpty()) {
+                for (ReplyExportRow row : batch) {
+                    sequence.write(convertToDTO(row));
+                }
+                // 每批写完刷新一次，让客户端尽早收到数据，同时避免逐条刷新产生过多小分块
+                sequence.flush();
+                if (batch.size() < EXPORT_BATCH_SIZE) {
+                    break;
+                }
+                ReplyExportRow last = batch.get(batch.size() - 1);
+                batch = replyRepository.findExportAfter(topicId, last.createdAt(), last.id(), limit);
+            }
         }
-        throw new RuntimeException("Author or Topic not found");
     }
     
     public long getReplyCountByTopic(Long topicId) {
@@ -99,6 +197,19 @@ public class ReplyService {
         throw new RuntimeException("Author not found");
     }
     
+    private ReplyDTO convertToDTO(ReplyExportRow row) {
+        UserDTO authorDTO = new UserDTO(
+            row.authorId(),
+            row.authorUsername(),
+            row.authorEmail(),
+            row.authorAvatar(),
+            row.authorBio(),
+            row.authorCreatedAt()
+        );
+        String contentHtml = contentRenderService.htmlOf(row.contentHtml(), row.renderVersion(), row.content());
+        return new ReplyDTO(row.id(), row.content(), contentHtml, row.createdAt(), authorDTO, row.topicId());
+    }
+
     private ReplyDTO convertToDTO(Reply reply) {
         UserDTO authorDTO = new UserDTO(
             reply.getAuthor().getId(),
@@ -112,6 +223,7 @@ public class ReplyService {
         return new ReplyDTO(
             reply.getId(),
             reply.getContent(),
+            contentRenderService.htmlOf(reply.getContentHtml(), reply.getRenderVersion(), reply.getContent()),
             reply.getCreatedAt(),
             authorDTO,
             reply.getTopic().getId()
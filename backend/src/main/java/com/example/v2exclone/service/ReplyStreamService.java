@@ -0,0 +1,286 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.dto.ReplyDTO;
+import com.example.v2exclone.exception.BusinessException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 新回复实时推送（SSE）
+ * 回复提交后序列化一次，本实例直接分发，同时通过Redis频道发给其他实例，由各实例推送给订阅该主题的客户端。
+ * 每个订阅者有一个有界的待发送队列，由虚拟线程异步发送；客户端跟不上导致队列溢出时丢弃积压的回复，
+ * 改为发送一个resync事件，让客户端自行重新拉取。空闲连接不占用线程，只靠定期心跳检测断开
+ */
+@Slf4j
+@Service
+public class ReplyStreamService {
+
+    public static final String REPLY_CHANNEL = "topic:replies";
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 各主题的订阅者
+     */
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.reply-stream.timeout:1800000}")
+    private long timeoutMillis;
+
+    @Value("${app.reply-stream.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${app.reply-stream.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> onReplyMessage(message),
+                new ChannelTopic(REPLY_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(topicSubscribers -> topicSubscribers.forEach(s -> s.emitter.complete()));
+        sender.shutdown();
+    }
+
+    /**
+     * 订阅主题的新回复
+     * @param topicId 主题ID
+     * @param lastEventId 断线重连时浏览器带上的最后一个事件ID，非空时先发送resync
+     */
+    public SseEmitter subscribe(Long topicId, String lastEventId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new BusinessException(503, "实时连接数已满，请稍后重试");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(topicId, emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscribers.compute(topicId, (id, topicSubscribers) -> {
+            Set<Subscriber> set = topicSubscribers != null ? topicSubscribers : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+
+        // 断线期间的回复无法补发，让客户端重新拉取
+        subscriber.enqueue(lastEventId != null ? Event.RESYNC : Event.READY);
+        return emitter;
+    }
+
+    /**
+     * 推送一批已提交的新回复到所有实例
+     * 本实例直接分发，其他实例的消息在一次管道往返中发出
+     * @param replies 新回复
+     */
+    public void publish(List<ReplyDTO> replies) {
+        List<byte[]> messages = new ArrayList<>(replies.size());
+        for (ReplyDTO reply : replies) {
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(reply);
+            } catch (JsonProcessingException e) {
+                log.warn("序列化回复 {} 失败: {}", reply.getId(), e.getMessage());
+                continue;
+            }
+            dispatch(reply.getTopicId(), reply.getId(), json);
+            messages.add((instanceId + "|" + reply.getTopicId() + "|" + reply.getId() + "|" + json)
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            byte[] channel = REPLY_CHANNEL.getBytes(StandardCharsets.UTF_8);
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                messages.forEach(message -> connection.publish(channel, message));
+                return null;
+            });
+        } catch (Exception e) {
+            // 其他实例的订阅者会错过这批回复，直到下次刷新
+            log.warn("广播 {} 条新回复失败: {}", messages.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 当前订阅连接数（用于监控）
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * 定期发送心跳，及时发现已断开的连接，并防止代理因空闲关闭连接
+     */
+    @Scheduled(fixedDelayString = "${app.reply-stream.heartbeat-interval:25000}")
+    public void heartbeat() {
+        subscribers.values().forEach(topicSubscribers -> topicSubscribers.forEach(subscriber -> {
+            if (subscriber.pending.isEmpty()) {
+                subscriber.enqueue(Event.HEARTBEAT);
+            }
+        }));
+    }
+
+    private void onReplyMessage(Message message) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 4);
+        if (parts.length != 4 || instanceId.equals(parts[0])) {
+            return;
+        }
+        dispatch(Long.valueOf(parts[1]), Long.valueOf(parts[2]), parts[3]);
+    }
+
+    private void dispatch(Long topicId, Long replyId, String json) {
+        Set<Subscriber> topicSubscribers = subscribers.get(topicId);
+        if (topicSubscribers == null) {
+            return;
+        }
+        Event event = new Event("reply", String.valueOf(replyId), json);
+        topicSubscribers.forEach(subscriber -> subscriber.enqueue(event));
+    }
+
+    private void remove(Subscriber subscriber) {
+        // 在compute中删除，避免与并发的订阅交错而把新订阅者留在已移除的集合里
+        subscribers.computeIfPresent(subscriber.topicId, (id, set) -> {
+            if (set.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * 待发送的事件；data为已序列化的JSON，所有订阅者共享同一个字符串
+     */
+    private record Event(String name, String id, String data) {
+
+        static final Event READY = new Event("ready", null, "{}");
+        static final Event RESYNC = new Event("resync", null, "{}");
+        static final Event HEARTBEAT = new Event(null, null, null);
+    }
+
+    private class Subscriber {
+
+        private final Long topicId;
+        private final SseEmitter emitter;
+        private final Queue<Event> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+
+        Subscriber(Long topicId, SseEmitter emitter) {
+            this.topicId = topicId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * 放入待发送队列；队列已满时丢弃积压，下一次发送改为resync
+         */
+        void enqueue(Event event) {
+            if (pendingCount.incrementAndGet() > bufferSize) {
+                pendingCount.decrementAndGet();
+                overflowed.set(true);
+            } else {
+                pending.offer(event);
+            }
+            if (sending.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        /**
+         * 同一时刻每个订阅者最多只有一个发送任务，保证事件顺序
+         */
+        private void drain() {
+            try {
+                while (true) {
+                    if (overflowed.getAndSet(false)) {
+                        // 逐个取出并递减计数：并发入队可能已计数但尚未放入队列，整体清零会让计数变为负数
+                        int dropped = 0;
+                        while (pending.poll() != null) {
+                            pendingCount.decrementAndGet();
+                            dropped++;
+                        }
+                        log.debug("主题 {} 的订阅者处理过慢，丢弃 {} 条待发送事件", topicId, dropped);
+                        send(Event.RESYNC);
+                        continue;
+                    }
+                    Event event = pending.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    pendingCount.decrementAndGet();
+                    send(event);
+                }
+            } catch (Exception e) {
+                // 客户端已断开
+                emitter.completeWithError(e);
+                remove(this);
+                return;
+            } finally {
+                sending.set(false);
+            }
+            // 发送任务结束前可能又有事件入队
+            if ((!pending.isEmpty() || overflowed.get()) && sending.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void send(Event event) throws Exception {
+            if (event == Event.HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("ping"));
+                return;
+            }
+            SseEmitter.SseEventBuilder builder = SseEmitter.event().name(event.name())
+                    .data(event.data(), MediaType.APPLICATION_JSON);
+            if (event.id() != null) {
+                builder.id(event.id());
+            }
+            emitter.send(builder);
+        }
+    }
+}
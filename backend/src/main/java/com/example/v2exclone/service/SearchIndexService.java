@@ -0,0 +1,838 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.common.PostingList;
+import com.example.v2exclone.common.SearchTokenizer;
+import com.example.v2exclone.dto.ReplyDTO;
+import com.example.v2exclone.exception.BusinessException;
+import com.example.v2exclone.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 全文搜索索引（进程内倒排索引）
+ * 以主题为文档，标题、正文和全部回复的词项计入同一文档（标题加权），按BM25排序。
+ * 写入先进入内存中的可变段，定期或攒够一定数量后冻结为不可变段并写到本地磁盘，段数过多时合并为一个。
+ * 文档重建索引时分配新版本号，旧版本的倒排记录在查询时跳过、在合并时删除，因此段本身不需要修改。
+ * 每个文档记下已计入的回复ID，追加回复时按ID去重：同一条回复重复送达不会重复计数，
+ * 多实例下晚提交的小ID回复也不会因为文档已重建而被跳过。
+ * 启动时从磁盘加载段和文档表，只补建上次落盘之后有变化的主题；本地没有索引时才全量重建。
+ * 所有写操作在单个索引线程上串行执行；其他实例的写入通过Redis频道通知
+ */
+@Slf4j
+@Service
+public class SearchIndexService {
+
+    public static final String INDEX_CHANNEL = "search:index";
+
+    private static final int FILE_MAGIC = 0x53524348;
+    private static final int FILE_VERSION = 2;
+    private static final String META_FILE = "index.meta";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".idx";
+
+    /**
+     * 各字段的词频权重
+     */
+    private static final int TITLE_WEIGHT = 3;
+    private static final int CONTENT_WEIGHT = 1;
+    private static final int REPLY_WEIGHT = 1;
+
+    /**
+     * BM25参数
+     */
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * 单次查询最多使用的词项数
+     */
+    private static final int MAX_QUERY_TERMS = 32;
+
+    private static final String TOPICS_AFTER_SQL =
+            "SELECT id, title, content, node_id FROM topics WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String TOPICS_BY_IDS_SQL =
+            "SELECT id, title, content, node_id FROM topics WHERE id = ANY(?)";
+
+    private static final String REPLIES_BY_TOPICS_SQL =
+            "SELECT topic_id, id, content FROM replies WHERE topic_id = ANY(?)";
+
+    private static final String REPLIES_BY_IDS_SQL =
+            "SELECT topic_id, id, content FROM replies WHERE id = ANY(?) ORDER BY id";
+
+    private static final String CHANGED_TOPICS_SQL = """
+            SELECT id FROM topics WHERE created_at >= ? OR updated_at >= ?
+            UNION
+            SELECT topic_id FROM replies WHERE created_at >= ?
+            """;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 当前文档表：主题ID到文档信息
+     */
+    private final Map<Long, DocInfo> docs = new ConcurrentHashMap<>();
+
+    /**
+     * 所有文档的加权长度之和，用于计算平均长度
+     */
+    private final AtomicLong totalLength = new AtomicLong();
+
+    /**
+     * 保护segments和live的切换以及live的内容；查询持有读锁，索引线程修改时持有写锁
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile List<Segment> segments = List.of();
+
+    private Map<String, PostingList.Builder> live = new HashMap<>();
+
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 以下字段只由索引线程访问
+    private long livePostings;
+    private long nextGeneration;
+    private long segmentCounter;
+    private boolean dirty;
+
+    /**
+     * 应用就绪后才接受写入通知，之前的变化由启动时的补建覆盖
+     */
+    private volatile boolean started;
+
+    /**
+     * 索引加载或重建完成后才提供查询
+     */
+    private volatile boolean ready;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${app.search.index-dir:./data/search-index}")
+    private String indexDir;
+
+    @Value("${app.search.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.search.flush-postings:200000}")
+    private long flushPostings;
+
+    @Value("${app.search.max-segments:8}")
+    private int maxSegments;
+
+    @Value("${app.search.catch-up-margin:300000}")
+    private long catchUpMarginMillis;
+
+    @Value("${app.search.max-results:1000}")
+    private int maxResults;
+
+    private Path directory;
+
+    @PostConstruct
+    public void init() {
+        directory = Path.of(indexDir).toAbsolutePath().normalize();
+        listenerContainer.addMessageListener((message, pattern) -> onIndexMessage(message),
+                new ChannelTopic(INDEX_CHANNEL));
+    }
+
+    /**
+     * 应用就绪后在索引线程上加载磁盘索引并补建，没有可用的索引时全量重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        started = true;
+        indexer.execute(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                Files.createDirectories(directory);
+                Long checkpoint = readIndex();
+                if (checkpoint != null) {
+                    LocalDateTime since = LocalDateTime.ofInstant(
+                            Instant.ofEpochMilli(checkpoint - catchUpMarginMillis), ZoneId.systemDefault());
+                    List<Long> changed = findChangedTopics(since);
+                    reindexTopics(changed);
+                    log.info("已加载搜索索引：{} 个文档，{} 个段，补建 {} 个主题，耗时 {} ms",
+                            docs.size(), segments.size(), changed.size(), System.currentTimeMillis() - start);
+                } else {
+                    rebuildAll();
+                    log.info("已全量重建搜索索引：{} 个文档，耗时 {} ms", docs.size(), System.currentTimeMillis() - start);
+                }
+                flush(checkpoint == null);
+                ready = true;
+            } catch (Exception e) {
+                log.error("加载搜索索引失败", e);
+            }
+        });
+    }
+
+    /**
+     * 关闭前把内存段写到磁盘，下次启动无需补建
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (ready) {
+            indexer.execute(() -> flushQuietly(false));
+        }
+        indexer.shutdown();
+        indexer.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 主题新建或修改后重建该主题的文档（事务提交后执行）
+     */
+    public void onTopicChanged(Long topicId) {
+        TransactionUtils.afterCommit(() -> {
+            submit(() -> reindexTopics(List.of(topicId)));
+            broadcast("T|" + topicId);
+        });
+    }
+
+    /**
+     * 一批已提交的回复追加到所属主题的文档
+     */
+    public void onRepliesCreated(List<ReplyDTO> replies) {
+        if (replies.isEmpty()) {
+            return;
+        }
+        List<ReplyRow> rows = replies.stream()
+                .map(reply -> new ReplyRow(reply.getTopicId(), reply.getId(), reply.getContent()))
+                .collect(Collectors.toList());
+        submit(() -> appendReplies(rows));
+        broadcast("R|" + replies.stream().map(reply -> String.valueOf(reply.getId())).collect(Collectors.joining(",")));
+    }
+
+    /**
+     * 在后台全量重建（数据绕过写入钩子批量导入之后调用）
+     * 重建期间旧索引继续提供查询，每个主题重建完成后立即替换
+     */
+    public void requestRebuild() {
+        submit(() -> {
+            long start = System.currentTimeMillis();
+            rebuildAll();
+            flush(true);
+            log.info("已重建搜索索引：{} 个文档，耗时 {} ms", docs.size(), System.currentTimeMillis() - start);
+        });
+    }
+
+    /**
+     * 定期把内存段写到磁盘
+     */
+    @Scheduled(fixedDelayString = "${app.search.flush-interval:60000}")
+    public void scheduledFlush() {
+        if (ready) {
+            indexer.execute(() -> flushQuietly(false));
+        }
+    }
+
+    /**
+     * 当前索引的文档数（用于监控）
+     */
+    public int getDocumentCount() {
+        return docs.size();
+    }
+
+    /**
+     * 搜索主题
+     * @param query 查询文本，按索引相同的规则分词，任意词项匹配即可，匹配越多、越集中得分越高
+     * @param nodeIds 只返回这些节点下的主题，为空时不过滤
+     * @return 按相关度排序的主题ID分页
+     */
+    public Page<Long> search(String query, Set<Long> nodeIds, int page, int size) {
+        if (!ready) {
+            throw new BusinessException(503, "搜索索引正在构建，请稍后重试");
+        }
+        PageRequest pageable = PageRequest.of(page, size);
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(SearchTokenizer.tokenize(query)));
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+        int documentCount = docs.size();
+        if (terms.isEmpty() || documentCount == 0) {
+            return new PageImpl<>(List.of(), pageable, 0);
+        }
+        double averageLength = Math.max(1.0, (double) totalLength.get() / documentCount);
+
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String term : terms) {
+                Map<Long, Integer> frequencies = collect(term);
+                // 文档频率按全部文档计算，节点过滤只影响返回哪些文档
+                int documentFrequency = frequencies.size();
+                double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                for (Map.Entry<Long, Integer> entry : frequencies.entrySet()) {
+                    DocInfo doc = docs.get(entry.getKey());
+                    if (doc == null || (!nodeIds.isEmpty() && !nodeIds.contains(doc.nodeId()))) {
+                        continue;
+                    }
+                    double tf = entry.getValue();
+                    double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * doc.length() / averageLength));
+                    scores.merge(entry.getKey(), score, Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // 只保留到请求页为止的前k个，k不超过max-results
+        int limit = (int) Math.min((long) (page + 1) * size, maxResults);
+        if (pageable.getOffset() >= limit) {
+            return new PageImpl<>(List.of(), pageable, Math.min(scores.size(), maxResults));
+        }
+        Comparator<Map.Entry<Long, Double>> byRelevance = Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(limit, byRelevance);
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            if (top.size() < limit) {
+                top.offer(entry);
+            } else if (byRelevance.compare(entry, top.peek()) > 0) {
+                top.poll();
+                top.offer(entry);
+            }
+        }
+        List<Long> ranked = top.stream()
+                .sorted(byRelevance.reversed())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+        List<Long> content = ranked.subList((int) pageable.getOffset(), ranked.size());
+        return new PageImpl<>(content, pageable, Math.min(scores.size(), maxResults));
+    }
+
+    /**
+     * 汇总一个词项在所有段中当前版本的词频（调用方持有读锁）
+     */
+    private Map<Long, Integer> collect(String term) {
+        Map<Long, Integer> frequencies = new HashMap<>();
+        PostingList.PostingConsumer consumer = (docId, generation, frequency) -> {
+            DocInfo doc = docs.get(docId);
+            if (doc != null && doc.generation() == generation) {
+                frequencies.merge(docId, frequency, Integer::sum);
+            }
+        };
+        for (Segment segment : segments) {
+            PostingList postings = segment.postings().get(term);
+            if (postings != null) {
+                postings.forEach(consumer);
+            }
+        }
+        PostingList.Builder builder = live.get(term);
+        if (builder != null) {
+            builder.forEach(consumer);
+        }
+        return frequencies;
+    }
+
+    private void submit(IndexTask task) {
+        if (!started) {
+            return;
+        }
+        indexer.execute(() -> {
+            try {
+                task.run();
+                if (livePostings >= flushPostings) {
+                    flush(false);
+                }
+            } catch (Exception e) {
+                // 漏掉的变化在下次重启补建时恢复
+                log.warn("更新搜索索引失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void broadcast(String body) {
+        try {
+            stringRedisTemplate.convertAndSend(INDEX_CHANNEL, instanceId + "|" + body);
+        } catch (Exception e) {
+            log.warn("广播搜索索引更新失败: {}", e.getMessage());
+        }
+    }
+
+    private void onIndexMessage(Message message) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 3);
+        if (parts.length != 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+        List<Long> ids = Arrays.stream(parts[2].split(",")).map(Long::valueOf).collect(Collectors.toList());
+        if ("T".equals(parts[1])) {
+            submit(() -> reindexTopics(ids));
+        } else if ("R".equals(parts[1])) {
+            submit(() -> appendReplies(jdbcTemplate.query(REPLIES_BY_IDS_SQL, arraySetter(ids),
+                    (rs, rowNum) -> new ReplyRow(rs.getLong(1), rs.getLong(2), rs.getString(3)))));
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // 以下方法只在索引线程上执行
+
+    private void rebuildAll() {
+        long lastId = 0;
+        while (true) {
+            Map<Long, DocBuilder> batch = new HashMap<>();
+            jdbcTemplate.query(TOPICS_AFTER_SQL, rs -> {
+                batch.put(rs.getLong(1), DocBuilder.forTopic(rs.getString(2), rs.getString(3), rs.getLong(4)));
+            }, lastId, batchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+            indexBatch(batch);
+            lastId = batch.keySet().stream().mapToLong(Long::longValue).max().getAsLong();
+        }
+    }
+
+    private void reindexTopics(Collection<Long> topicIds) {
+        List<Long> ids = new ArrayList<>(new TreeSet<>(topicIds));
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            Map<Long, DocBuilder> batch = new HashMap<>();
+            jdbcTemplate.query(TOPICS_BY_IDS_SQL, arraySetter(chunk), rs -> {
+                batch.put(rs.getLong(1), DocBuilder.forTopic(rs.getString(2), rs.getString(3), rs.getLong(4)));
+            });
+            for (Long id : chunk) {
+                if (!batch.containsKey(id)) {
+                    removeDocument(id);
+                }
+            }
+            if (!batch.isEmpty()) {
+                indexBatch(batch);
+            }
+        }
+    }
+
+    /**
+     * 读取一批主题的全部回复，然后替换这些主题的文档
+     */
+    private void indexBatch(Map<Long, DocBuilder> batch) {
+        jdbcTemplate.query(REPLIES_BY_TOPICS_SQL, arraySetter(batch.keySet()), rs -> {
+            DocBuilder doc = batch.get(rs.getLong(1));
+            doc.add(rs.getString(3), REPLY_WEIGHT);
+            doc.replyIds.add(rs.getLong(2));
+        });
+        lock.writeLock().lock();
+        try {
+            batch.forEach(this::putDocument);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 以新版本写入文档，旧版本的倒排记录随即失效（调用方持有写锁）
+     */
+    private void putDocument(Long topicId, DocBuilder doc) {
+        long generation = ++nextGeneration;
+        long[] replyIds = doc.replyIds.stream().mapToLong(Long::longValue).sorted().toArray();
+        DocInfo previous = docs.put(topicId, new DocInfo(doc.nodeId, doc.length, generation, replyIds));
+        totalLength.addAndGet(doc.length - (previous != null ? previous.length() : 0));
+        addPostings(topicId, generation, doc.frequencies);
+        dirty = true;
+    }
+
+    private void removeDocument(Long topicId) {
+        DocInfo previous = docs.remove(topicId);
+        if (previous != null) {
+            totalLength.addAndGet(-previous.length());
+            dirty = true;
+        }
+    }
+
+    /**
+     * 把回复追加到当前版本的文档
+     * 已计入文档的回复（重建时读到的或此前追加的）跳过，避免重复计数；主题尚未入索引时跳过，由主题的重建覆盖
+     */
+    private void appendReplies(List<ReplyRow> replies) {
+        lock.writeLock().lock();
+        try {
+            for (ReplyRow reply : replies) {
+                DocInfo doc = docs.get(reply.topicId());
+                if (doc == null) {
+                    continue;
+                }
+                int position = Arrays.binarySearch(doc.replyIds(), reply.id());
+                if (position >= 0) {
+                    continue;
+                }
+                DocBuilder addition = new DocBuilder(doc.nodeId());
+                addition.add(reply.content(), REPLY_WEIGHT);
+                docs.put(reply.topicId(), new DocInfo(doc.nodeId(), doc.length() + addition.length,
+                        doc.generation(), insert(doc.replyIds(), -position - 1, reply.id())));
+                totalLength.addAndGet(addition.length);
+                addPostings(reply.topicId(), doc.generation(), addition.frequencies);
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long[] insert(long[] sorted, int index, long value) {
+        long[] result = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(sorted, index, result, index + 1, sorted.length - index);
+        return result;
+    }
+
+    private void addPostings(long topicId, long generation, Map<String, Integer> frequencies) {
+        frequencies.forEach((term, frequency) ->
+                live.computeIfAbsent(term, t -> new PostingList.Builder()).add(topicId, generation, frequency));
+        livePostings += frequencies.size();
+    }
+
+    private List<Long> findChangedTopics(LocalDateTime since) {
+        Timestamp timestamp = Timestamp.valueOf(since);
+        return jdbcTemplate.queryForList(CHANGED_TOPICS_SQL, Long.class, timestamp, timestamp, timestamp);
+    }
+
+    private void flushQuietly(boolean forceMerge) {
+        try {
+            flush(forceMerge);
+        } catch (Exception e) {
+            log.warn("搜索索引落盘失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 冻结内存段并写盘，段数超过上限（或强制）时合并全部段，最后写入文档表
+     * 检查点取开始落盘的时间：此前提交的变化都已由索引线程处理完
+     */
+    private void flush(boolean forceMerge) throws IOException {
+        long checkpoint = System.currentTimeMillis();
+        List<Segment> obsolete = List.of();
+
+        if (!live.isEmpty()) {
+            Map<String, PostingList> frozen = new HashMap<>(live.size() * 2);
+            live.forEach((term, builder) -> frozen.put(term, builder.build()));
+            Segment segment = writeSegment(frozen);
+            List<Segment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            lock.writeLock().lock();
+            try {
+                segments = List.copyOf(updated);
+                live = new HashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            livePostings = 0;
+            dirty = true;
+        }
+
+        if (segments.size() > maxSegments || (forceMerge && segments.size() > 1)) {
+            obsolete = segments;
+            Segment merged = writeSegment(mergeSegments(obsolete));
+            lock.writeLock().lock();
+            try {
+                segments = List.of(merged);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            dirty = true;
+        }
+
+        if (dirty) {
+            writeMeta(checkpoint);
+            dirty = false;
+        }
+        for (Segment segment : obsolete) {
+            Files.deleteIfExists(directory.resolve(segment.fileName()));
+        }
+    }
+
+    private Map<String, PostingList> mergeSegments(List<Segment> toMerge) {
+        Set<String> terms = new HashSet<>();
+        toMerge.forEach(segment -> terms.addAll(segment.postings().keySet()));
+        Map<String, PostingList> merged = new HashMap<>(terms.size() * 2);
+        for (String term : terms) {
+            List<PostingList> lists = toMerge.stream()
+                    .map(segment -> segment.postings().get(term))
+                    .filter(list -> list != null)
+                    .collect(Collectors.toList());
+            PostingList list = PostingList.merge(lists, docId -> {
+                DocInfo doc = docs.get(docId);
+                return doc != null ? doc.generation() : -1;
+            });
+            if (list.size() > 0) {
+                merged.put(term, list);
+            }
+        }
+        return merged;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // 磁盘格式：魔数、版本、正文、CRC32；先写临时文件再原子替换
+
+    private Segment writeSegment(Map<String, PostingList> postings) throws IOException {
+        String fileName = SEGMENT_PREFIX + (++segmentCounter) + SEGMENT_SUFFIX;
+        Path temp = directory.resolve(fileName + ".tmp");
+        CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)), new CRC32());
+        try (DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(postings.size());
+            for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                PostingList list = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(list.size());
+                out.writeInt(list.bytes().length);
+                out.write(list.bytes());
+            }
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+        }
+        Files.move(temp, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new Segment(fileName, postings);
+    }
+
+    private Segment readSegment(String fileName) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(directory.resolve(fileName))), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            checkHeader(in, fileName);
+            int termCount = in.readInt();
+            Map<String, PostingList> postings = new HashMap<>(termCount * 2);
+            for (int i = 0; i < termCount; i++) {
+                String term = in.readUTF();
+                int size = in.readInt();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                postings.put(term, PostingList.of(bytes, size));
+            }
+            checkChecksum(in, checked, fileName);
+            return new Segment(fileName, postings);
+        }
+    }
+
+    private void writeMeta(long checkpoint) throws IOException {
+        Path temp = directory.resolve(META_FILE + ".tmp");
+        CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)), new CRC32());
+        try (DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(checkpoint);
+            out.writeLong(nextGeneration);
+            out.writeLong(segmentCounter);
+            out.writeInt(segments.size());
+            for (Segment segment : segments) {
+                out.writeUTF(segment.fileName());
+            }
+            out.writeInt(docs.size());
+            for (Map.Entry<Long, DocInfo> entry : docs.entrySet()) {
+                DocInfo doc = entry.getValue();
+                out.writeLong(entry.getKey());
+                out.writeLong(doc.nodeId());
+                out.writeInt(doc.length());
+                out.writeLong(doc.generation());
+                out.writeInt(doc.replyIds().length);
+                for (long replyId : doc.replyIds()) {
+                    out.writeLong(replyId);
+                }
+            }
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+        }
+        Files.move(temp, directory.resolve(META_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取磁盘上的索引
+     * @return 检查点时间，没有索引或索引损坏时返回null
+     */
+    private Long readIndex() {
+        Path meta = directory.resolve(META_FILE);
+        if (!Files.exists(meta)) {
+            return null;
+        }
+        try {
+            long checkpoint;
+            List<String> segmentNames = new ArrayList<>();
+            Map<Long, DocInfo> loadedDocs = new HashMap<>();
+            CheckedInputStream checked = new CheckedInputStream(
+                    new BufferedInputStream(Files.newInputStream(meta)), new CRC32());
+            try (DataInputStream in = new DataInputStream(checked)) {
+                checkHeader(in, META_FILE);
+                checkpoint = in.readLong();
+                nextGeneration = in.readLong();
+                segmentCounter = in.readLong();
+                int segmentCount = in.readInt();
+                for (int i = 0; i < segmentCount; i++) {
+                    segmentNames.add(in.readUTF());
+                }
+                int docCount = in.readInt();
+                for (int i = 0; i < docCount; i++) {
+                    long topicId = in.readLong();
+                    long nodeId = in.readLong();
+                    int length = in.readInt();
+                    long generation = in.readLong();
+                    long[] replyIds = new long[in.readInt()];
+                    for (int j = 0; j < replyIds.length; j++) {
+                        replyIds[j] = in.readLong();
+                    }
+                    loadedDocs.put(topicId, new DocInfo(nodeId, length, generation, replyIds));
+                }
+                checkChecksum(in, checked, META_FILE);
+            }
+
+            List<Segment> loadedSegments = new ArrayList<>();
+            for (String name : segmentNames) {
+                loadedSegments.add(readSegment(name));
+            }
+            deleteUnreferencedFiles(segmentNames);
+
+            docs.putAll(loadedDocs);
+            totalLength.set(loadedDocs.values().stream().mapToLong(DocInfo::length).sum());
+            segments = List.copyOf(loadedSegments);
+            return checkpoint;
+        } catch (IOException | RuntimeException e) {
+            log.warn("磁盘上的搜索索引不可用，将全量重建: {}", e.getMessage());
+            docs.clear();
+            totalLength.set(0);
+            segments = List.of();
+            nextGeneration = 0;
+            return null;
+        }
+    }
+
+    /**
+     * 删除上次异常退出时残留的临时文件和未被引用的段
+     */
+    private void deleteUnreferencedFiles(List<String> referenced) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && !referenced.contains(name)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private static void checkHeader(DataInputStream in, String fileName) throws IOException {
+        if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+            throw new IOException(fileName + " 格式不兼容");
+        }
+    }
+
+    private static void checkChecksum(DataInputStream in, CheckedInputStream checked, String fileName) throws IOException {
+        long expected = checked.getChecksum().getValue();
+        if (in.readLong() != expected) {
+            throw new IOException(fileName + " 校验失败");
+        }
+    }
+
+    private static PreparedStatementSetter arraySetter(Collection<Long> ids) {
+        return ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+    }
+
+    @FunctionalInterface
+    private interface IndexTask {
+        void run() throws Exception;
+    }
+
+    /**
+     * 文档信息：所属节点、加权长度、当前版本、已计入文档的回复ID（升序）
+     */
+    private record DocInfo(long nodeId, int length, long generation, long[] replyIds) {
+    }
+
+    private record Segment(String fileName, Map<String, PostingList> postings) {
+    }
+
+    private record ReplyRow(long topicId, long id, String content) {
+    }
+
+    /**
+     * 构建中的文档：加权词频和长度
+     */
+    private static final class DocBuilder {
+
+        private final long nodeId;
+        private final Map<String, Integer> frequencies = new HashMap<>();
+        private final List<Long> replyIds = new ArrayList<>();
+        private int length;
+
+        private DocBuilder(long nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        static DocBuilder forTopic(String title, String content, long nodeId) {
+            DocBuilder doc = new DocBuilder(nodeId);
+            doc.add(title, TITLE_WEIGHT);
+            doc.add(content, CONTENT_WEIGHT);
+            return doc;
+        }
+
+        void add(String text, int weight) {
+            for (String token : SearchTokenizer.tokenize(text)) {
+                frequencies.merge(token, weight, Integer::sum);
+                length += weight;
+            }
+        }
+    }
+}
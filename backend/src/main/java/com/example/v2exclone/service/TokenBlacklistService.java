@@ -1,24 +1,88 @@
 package com.example.v2exclone.service;
 
+import com.example.v2exclone.common.BloomFilter;
+import com.example.v2exclone.dto.RevokedTokenDTO;
+import com.example.v2exclone.util.JwtClaims;
 import com.example.v2exclone.util.JwtUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.TimeUnit;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
+/**
+ * token黑名单服务
+ * 黑名单保存在一个Redis有序集合中，成员为token摘要的前32位十六进制（吊销ID），分数为token的过期时间（毫秒），
+ * 不保存完整token；集合大小用ZCARD常数时间获得，过期条目由定时任务按分数范围批量删除。
+ * 本地维护一个吊销ID的布隆过滤器：绝大多数token从未被吊销，过滤器判定不存在时直接放行，
+ * 只有可能命中时才访问Redis确认。过滤器通过Redis发布订阅增量同步，并定期全量重建以清理过期条目
+ */
+@Slf4j
 @Service
 public class TokenBlacklistService {
 
-    private static final String BLACKLIST_PREFIX = "token:blacklist:";
-    private static final String USER_TOKENS_PREFIX = "user:tokens:";
+    public static final String REVOCATION_CHANNEL = "token:revoked";
+
+    private static final String BLACKLIST_KEY = "token:blacklist";
+
+    private static final int REVOCATION_ID_LENGTH = 32;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private RedisMessageListenerContainer listenerContainer;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Value("${app.token-blacklist.filter.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    @Value("${app.token-blacklist.filter.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    /**
+     * 当前生效的过滤器；为null表示还没有完成首次加载，此时所有检查都直接查Redis
+     */
+    private volatile BloomFilter revokedFilter;
+
+    /**
+     * 正在重建的过滤器，重建期间收到的吊销同时写入新旧两个过滤器，由this加锁保护
+     */
+    private BloomFilter rebuildingFilter;
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener((message, pattern) -> onRevocationMessage(message),
+                new ChannelTopic(REVOCATION_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuildFilter();
+    }
+
     /**
      * 将token加入黑名单
      * @param token JWT token
@@ -26,89 +90,160 @@ public class TokenBlacklistService {
      */
     public void blacklistToken(String token, String username) {
         try {
-            // 获取token的过期时间
-            long expirationTime = jwtUtil.getExpirationFromToken(token).getTime();
-            long currentTime = System.currentTimeMillis();
-            
-            if (expirationTime > currentTime) {
-                // 计算剩余有效时间
-                long ttl = expirationTime - currentTime;
-                
-                // 将token加入黑名单，设置过期时间为token的剩余有效时间
-                String blacklistKey = BLACKLIST_PREFIX + token;
-                redisTemplate.opsForValue().set(blacklistKey, username, ttl, TimeUnit.MILLISECONDS);
-                
-                // 记录用户的token（用于全局logout等功能）
-                String userTokensKey = USER_TOKENS_PREFIX + username;
-                redisTemplate.opsForSet().add(userTokensKey, token);
-                redisTemplate.expire(userTokensKey, ttl, TimeUnit.MILLISECONDS);
-                
-                System.out.println("Token blacklisted for user: " + username + ", TTL: " + ttl + "ms");
+            // 无效或已过期的token本身就无法通过验证，不需要加入黑名单
+            Optional<JwtClaims> claims = jwtUtil.parseToken(token);
+
+            // 计算剩余有效时间
+            long ttl = claims.map(JwtClaims::remainingMillis).orElse(0L);
+
+            if (ttl > 0) {
+                String revocationId = revocationId(claims.get());
+
+                // 将吊销ID加入黑名单，分数为token的过期时间
+                stringRedisTemplate.opsForZSet().add(BLACKLIST_KEY, revocationId, claims.get().expiresAt());
+
+                addToFilter(revocationId);
+                publish(revocationId);
+
+                log.info("Token blacklisted for user: {}, TTL: {}ms", username, ttl);
             }
         } catch (Exception e) {
-            System.err.println("Failed to blacklist token: " + e.getMessage());
+            log.error("Failed to blacklist token: {}", e.getMessage());
         }
     }
 
     /**
      * 检查token是否在黑名单中
-     * @param token JWT token
+     * @param claims 已验签的token声明
      * @return true if token is blacklisted
      */
-    public boolean isTokenBlacklisted(String token) {
+    public boolean isTokenBlacklisted(JwtClaims claims) {
+        String revocationId = revocationId(claims);
+        BloomFilter filter = revokedFilter;
+        if (filter != null && !filter.mightContain(revocationId)) {
+            return false;
+        }
         try {
-            String blacklistKey = BLACKLIST_PREFIX + token;
-            return Boolean.TRUE.equals(redisTemplate.hasKey(blacklistKey));
+            // 已过期但尚未清理的条目对应的token本身也已失效，这里只看是否存在
+            return stringRedisTemplate.opsForZSet().score(BLACKLIST_KEY, revocationId) != null;
         } catch (Exception e) {
-            System.err.println("Failed to check token blacklist: " + e.getMessage());
+            log.error("Failed to check token blacklist: {}", e.getMessage());
             return false;
         }
     }
 
     /**
-     * 将用户的所有token加入黑名单（全局logout）
-     * @param username 用户名
+     * 定期按分数范围删除已过期的黑名单记录
+     * 布隆过滤器中的过期条目在定期重建时清除
      */
-    public void blacklistAllUserTokens(String username) {
+    @Scheduled(fixedDelayString = "${app.token-blacklist.purge-interval:60000}")
+    public void cleanupExpiredTokens() {
         try {
-            String userTokensKey = USER_TOKENS_PREFIX + username;
-            var tokens = redisTemplate.opsForSet().members(userTokensKey);
-            
-            if (tokens != null) {
-                for (Object tokenObj : tokens) {
-                    String token = (String) tokenObj;
-                    blacklistToken(token, username);
-                }
-                
-                // 清除用户token集合
-                redisTemplate.delete(userTokensKey);
-                System.out.println("All tokens blacklisted for user: " + username);
+            Long removed = stringRedisTemplate.opsForZSet()
+                    .removeRangeByScore(BLACKLIST_KEY, 0, System.currentTimeMillis());
+            if (removed != null && removed > 0) {
+                log.debug("清理过期黑名单记录 {} 条", removed);
             }
         } catch (Exception e) {
-            System.err.println("Failed to blacklist all user tokens: " + e.getMessage());
+            log.warn("清理过期黑名单记录失败: {}", e.getMessage());
         }
     }
 
-    /**
-     * 清理过期的黑名单记录（Redis会自动处理，这个方法主要用于手动清理）
-     */
-    public void cleanupExpiredTokens() {
-        // Redis的TTL机制会自动清理过期的key，通常不需要手动清理
-        // 这个方法可以用于统计或其他管理目的
-        System.out.println("Token cleanup completed (handled by Redis TTL)");
-    }
-
     /**
      * 获取黑名单中的token数量（用于监控）
+     * ZCARD为常数时间，可能包含尚未清理的已过期条目
      * @return 黑名单token数量
      */
     public long getBlacklistSize() {
         try {
-            var keys = redisTemplate.keys(BLACKLIST_PREFIX + "*");
-            return keys != null ? keys.size() : 0;
+            Long size = stringRedisTemplate.opsForZSet().zCard(BLACKLIST_KEY);
+            return size != null ? size : 0;
         } catch (Exception e) {
-            System.err.println("Failed to get blacklist size: " + e.getMessage());
+            log.error("Failed to get blacklist size: {}", e.getMessage());
             return 0;
         }
     }
+
+    /**
+     * 按过期时间升序分页查看黑名单（管理用）
+     * @param offset 起始位置
+     * @param limit 数量
+     */
+    public List<RevokedTokenDTO> getBlacklistEntries(long offset, int limit) {
+        Set<ZSetOperations.TypedTuple<String>> entries = stringRedisTemplate.opsForZSet()
+                .rangeWithScores(BLACKLIST_KEY, offset, offset + limit - 1);
+        if (entries == null) {
+            return List.of();
+        }
+        return entries.stream()
+                .map(entry -> new RevokedTokenDTO(
+                        entry.getValue(),
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getScore().longValue()), ZoneId.systemDefault())
+                ))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 按分数读取Redis中仍然有效的吊销ID，全量重建本地过滤器
+     * 布隆过滤器不支持删除，已过期的吊销只能靠重建清除；重建失败时保留旧过滤器
+     */
+    @Scheduled(fixedDelayString = "${app.token-blacklist.filter.rebuild-interval:600000}",
+            initialDelayString = "${app.token-blacklist.filter.rebuild-interval:600000}")
+    public void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(expectedInsertions, falsePositiveRate);
+        synchronized (this) {
+            rebuildingFilter = rebuilt;
+        }
+        try {
+            // 一次取出全部有效条目：分批按偏移读取时，并发的过期清理会让偏移错位而漏掉条目
+            Set<String> revoked = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(BLACKLIST_KEY, System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+            long count = 0;
+            if (revoked != null) {
+                revoked.forEach(rebuilt::put);
+                count = revoked.size();
+            }
+            synchronized (this) {
+                revokedFilter = rebuilt;
+                rebuildingFilter = null;
+            }
+            log.debug("吊销过滤器已重建，共 {} 个吊销ID", count);
+        } catch (Exception e) {
+            synchronized (this) {
+                rebuildingFilter = null;
+            }
+            log.warn("重建吊销过滤器失败: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void addToFilter(String revocationId) {
+        BloomFilter filter = revokedFilter;
+        if (filter != null) {
+            filter.put(revocationId);
+        }
+        if (rebuildingFilter != null) {
+            rebuildingFilter.put(revocationId);
+        }
+    }
+
+    private void publish(String revocationId) {
+        try {
+            stringRedisTemplate.convertAndSend(REVOCATION_CHANNEL, instanceId + "|" + revocationId);
+        } catch (Exception e) {
+            // 其他实例会在下次重建时补上
+            log.warn("广播token吊销消息失败: {}", e.getMessage());
+        }
+    }
+
+    private void onRevocationMessage(Message message) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 2 || instanceId.equals(parts[0])) {
+            return;
+        }
+        addToFilter(parts[1]);
+    }
+
+    private static String revocationId(JwtClaims claims) {
+        return claims.tokenHash().substring(0, REVOCATION_ID_LENGTH);
+    }
 }
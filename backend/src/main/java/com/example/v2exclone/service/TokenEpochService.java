@@ -0,0 +1,157 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.common.BoundedCache;
+import com.example.v2exclone.util.JwtClaims;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * 用户token版本（epoch）服务
+ * 签发token时把用户当前的epoch写入声明，"退出所有设备"只需把epoch加一（一次Redis INCR），
+ * 此前签发的token的epoch都小于当前值，验证时在内存中比较即可判定失效。
+ * 各实例本地缓存每个用户的epoch，变更时通过Redis发布订阅立即通知，缓存过期时间作为消息丢失时的兜底。
+ * Redis不可用时使用本地最后一次读到的epoch；本地也没有时验证失败（宁可让用户重新登录，也不让已吊销的token恢复有效）
+ */
+@Slf4j
+@Service
+public class TokenEpochService {
+
+    public static final String EPOCH_CHANNEL = "token:epoch";
+
+    private static final String EPOCH_KEY_PREFIX = "user:token-epoch:";
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${app.token-epoch.cache.max-size:100000}")
+    private int cacheMaxSize;
+
+    @Value("${app.token-epoch.cache.ttl:300000}")
+    private long cacheTtlMillis;
+
+    /**
+     * 本地缓存的epoch
+     * @param readAt 读取时间（毫秒），超过ttl后重新读取Redis，但在Redis不可用时仍作为最后已知值使用
+     */
+    private record CachedEpoch(long epoch, long readAt) {
+    }
+
+    /**
+     * 条目本身不过期，新旧由readAt判断
+     */
+    private BoundedCache<Long, CachedEpoch> epochs;
+
+    @PostConstruct
+    public void init() {
+        epochs = new BoundedCache<>(cacheMaxSize, 0);
+        listenerContainer.addMessageListener((message, pattern) -> onEpochMessage(message),
+                new ChannelTopic(EPOCH_CHANNEL));
+    }
+
+    /**
+     * 获取签发新token时使用的epoch
+     * 总是读取Redis，不使用可能错过变更通知的本地缓存，避免新token带着旧epoch被其他实例拒绝
+     * @param userId 用户ID
+     */
+    public long getEpochForIssue(Long userId) {
+        OptionalLong epoch = readRemote(userId);
+        if (epoch.isPresent()) {
+            return epoch.getAsLong();
+        }
+        // Redis不可用：使用最后已知值；没有时用0，epoch偏小的token在Redis恢复后只会被拒绝，不会越权
+        CachedEpoch cached = epochs.get(userId);
+        return cached != null ? cached.epoch() : 0;
+    }
+
+    /**
+     * token是否签发于用户最近一次"退出所有设备"之后
+     * 本地缓存未过期时直接比较；否则读取Redis，Redis不可用时用最后已知的epoch，都没有时视为无效
+     * @param claims 已验签的token声明
+     */
+    public boolean isCurrent(JwtClaims claims) {
+        Long userId = claims.userId();
+        CachedEpoch cached = epochs.get(userId);
+        if (cached != null && System.currentTimeMillis() - cached.readAt() < cacheTtlMillis) {
+            return claims.epoch() >= cached.epoch();
+        }
+        OptionalLong epoch = readRemote(userId);
+        if (epoch.isPresent()) {
+            return claims.epoch() >= epoch.getAsLong();
+        }
+        if (cached != null) {
+            return claims.epoch() >= cached.epoch();
+        }
+        log.warn("无法确定用户 {} 的token epoch，拒绝该token", userId);
+        return false;
+    }
+
+    /**
+     * 吊销用户此前签发的所有token
+     * @param userId 用户ID
+     * @return 新的epoch
+     */
+    public long revokeAllTokens(Long userId) {
+        Long epoch = stringRedisTemplate.opsForValue().increment(EPOCH_KEY_PREFIX + userId);
+        long current = epoch != null ? epoch : 0;
+        rememberNewer(userId, current);
+        try {
+            stringRedisTemplate.convertAndSend(EPOCH_CHANNEL, instanceId + "|" + userId + "|" + current);
+        } catch (Exception e) {
+            // 其他实例在本地缓存过期后会读到新值
+            log.warn("广播token epoch变更失败: {}", e.getMessage());
+        }
+        return current;
+    }
+
+    private void onEpochMessage(Message message) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+        rememberNewer(Long.valueOf(parts[1]), Long.parseLong(parts[2]));
+    }
+
+    /**
+     * 从Redis读取epoch并刷新本地缓存
+     * @return 读取失败时为空
+     */
+    private OptionalLong readRemote(Long userId) {
+        try {
+            String value = stringRedisTemplate.opsForValue().get(EPOCH_KEY_PREFIX + userId);
+            long epoch = value != null ? Long.parseLong(value) : 0;
+            remember(userId, epoch);
+            return OptionalLong.of(epoch);
+        } catch (Exception e) {
+            log.warn("读取用户 {} 的token epoch失败: {}", userId, e.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+
+    private void remember(Long userId, long epoch) {
+        epochs.put(userId, new CachedEpoch(epoch, System.currentTimeMillis()));
+    }
+
+    /**
+     * 记录变更通知中的epoch，乱序到达的旧值不覆盖新值（Redis中的值才是权威值，读取时直接覆盖）
+     */
+    private void rememberNewer(Long userId, long epoch) {
+        CachedEpoch cached = epochs.get(userId);
+        remember(userId, cached != null ? Math.max(cached.epoch(), epoch) : epoch);
+    }
+}
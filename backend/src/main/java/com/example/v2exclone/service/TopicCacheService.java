@@ -0,0 +1,300 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.common.BoundedCache;
+import com.example.v2exclone.dto.CacheStatsDTO;
+import com.example.v2exclone.dto.ReplyPageDTO;
+import com.example.v2exclone.dto.TopicDTO;
+import com.example.v2exclone.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 主题详情和回复分页的两级缓存
+ * L1为进程内缓存，L2为Redis；数据变更时删除两级缓存，并通过Redis发布订阅通知其他实例清理各自的L1。
+ * 缓存的主题详情中的浏览数不作为返回值使用，已写回数据库的浏览数单独缓存在本地，存活时间为一个写回周期
+ */
+@Slf4j
+@Service
+public class TopicCacheService {
+
+    public static final String INVALIDATION_CHANNEL = "cache:invalidate";
+
+    private static final String TOPIC_KEY_PREFIX = "cache:topic:";
+    private static final String REPLIES_KEY_PREFIX = "cache:replies:";
+
+    /**
+     * 本实例标识，收到自己发出的失效消息时跳过
+     */
+    private final String instanceId = UUID.randomUUID().toString();
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${app.cache.topic.max-size:10000}")
+    private int topicMaxSize;
+
+    @Value("${app.cache.reply-page.max-size:5000}")
+    private int replyPageMaxSize;
+
+    @Value("${app.cache.local-ttl:60000}")
+    private long localTtlMillis;
+
+    @Value("${app.cache.remote-ttl:300000}")
+    private long remoteTtlMillis;
+
+    @Value("${app.view-count.flush-interval:5000}")
+    private long viewCountTtlMillis;
+
+    private BoundedCache<Long, TopicDTO> topicCache;
+    private BoundedCache<String, ReplyPageDTO> replyPageCache;
+    private BoundedCache<Long, Integer> viewCounts;
+
+    private final LongAdder topicRemoteHits = new LongAdder();
+    private final LongAdder topicRemoteMisses = new LongAdder();
+    private final LongAdder replyPageRemoteHits = new LongAdder();
+    private final LongAdder replyPageRemoteMisses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        topicCache = new BoundedCache<>(topicMaxSize, localTtlMillis);
+        replyPageCache = new BoundedCache<>(replyPageMaxSize, localTtlMillis);
+        viewCounts = new BoundedCache<>(topicMaxSize, viewCountTtlMillis);
+        listenerContainer.addMessageListener((message, pattern) -> onInvalidation(message),
+                new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * 读取主题详情，依次查L1、L2，都未命中时调用loader加载并回填
+     * @param topicId 主题ID
+     * @param loader 从数据库加载
+     */
+    public Optional<TopicDTO> getTopic(Long topicId, Supplier<Optional<TopicDTO>> loader) {
+        TopicDTO cached = topicCache.get(topicId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        String key = TOPIC_KEY_PREFIX + topicId;
+        cached = readRemote(key, TopicDTO.class);
+        if (cached != null) {
+            topicRemoteHits.increment();
+            topicCache.put(topicId, cached);
+            return Optional.of(cached);
+        }
+        topicRemoteMisses.increment();
+
+        Optional<TopicDTO> loaded = loader.get();
+        loaded.ifPresent(topic -> {
+            topicCache.put(topicId, topic);
+            viewCounts.put(topicId, topic.getViewCount());
+            writeRemote(key, topic);
+        });
+        return loaded;
+    }
+
+    /**
+     * 读取已写回数据库的浏览数，本地缓存未命中时调用loader查询
+     * @param topicId 主题ID
+     * @param loader 从数据库读取浏览数，主题不存在时返回null
+     */
+    public int getViewCount(Long topicId, Supplier<Integer> loader) {
+        Integer cached = viewCounts.get(topicId);
+        if (cached != null) {
+            return cached;
+        }
+        Integer loaded = loader.get();
+        int viewCount = loaded != null ? loaded : 0;
+        viewCounts.put(topicId, viewCount);
+        return viewCount;
+    }
+
+    /**
+     * 读取回复分页，依次查L1、L2，都未命中时调用loader加载并回填
+     */
+    public ReplyPageDTO getReplyPage(Long topicId, int page, int size, Supplier<ReplyPageDTO> loader) {
+        String localKey = topicId + ":" + page + ":" + size;
+        ReplyPageDTO cached = replyPageCache.get(localKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        // 同一主题的所有分页放在一个Hash里，失效时一次DEL即可
+        String key = REPLIES_KEY_PREFIX + topicId;
+        String field = page + ":" + size;
+        try {
+            Object value = redisTemplate.opsForHash().get(key, field);
+            if (value instanceof ReplyPageDTO remote) {
+                replyPageRemoteHits.increment();
+                replyPageCache.put(localKey, remote);
+                return remote;
+            }
+        } catch (Exception e) {
+            log.warn("读取Redis缓存 {} 失败: {}", key, e.getMessage());
+        }
+        replyPageRemoteMisses.increment();
+
+        ReplyPageDTO loaded = loader.get();
+        replyPageCache.put(localKey, loaded);
+        try {
+            redisTemplate.opsForHash().put(key, field, loaded);
+            redisTemplate.expire(key, remoteTtlMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("写入Redis缓存 {} 失败: {}", key, e.getMessage());
+        }
+        return loaded;
+    }
+
+    /**
+     * 主题变更后失效其详情缓存（在事务提交后执行）
+     */
+    public void evictTopic(Long topicId) {
+        TransactionUtils.afterCommit(() -> {
+            topicCache.remove(topicId);
+            deleteRemote(TOPIC_KEY_PREFIX + topicId);
+            publish("topic", topicId);
+        });
+    }
+
+    /**
+     * 新回复产生后失效该主题的所有回复分页（在事务提交后执行）
+     */
+    public void evictReplies(Long topicId) {
+        TransactionUtils.afterCommit(() -> {
+            evictLocalReplyPages(topicId);
+            deleteRemote(REPLIES_KEY_PREFIX + topicId);
+            publish("replies", topicId);
+        });
+    }
+
+    /**
+     * 浏览数写回数据库后，丢弃本地缓存的已写回浏览数，下次读取时重新查询
+     * 主题详情的两级缓存不受影响；其他实例缓存的浏览数在一个写回周期内过期
+     * @param topicIds 本次写回的主题
+     */
+    public void onViewsFlushed(Collection<Long> topicIds) {
+        topicIds.forEach(viewCounts::remove);
+    }
+
+    public List<CacheStatsDTO> getStats() {
+        return List.of(
+                toStats("topic", topicCache, topicRemoteHits, topicRemoteMisses),
+                toStats("replyPage", replyPageCache, replyPageRemoteHits, replyPageRemoteMisses)
+        );
+    }
+
+    /**
+     * 定期清理L1中已过期的条目
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void cleanUp() {
+        topicCache.cleanUp();
+        replyPageCache.cleanUp();
+    }
+
+    /**
+     * 复制主题DTO并替换浏览数，缓存中的对象不直接修改
+     */
+    public static TopicDTO withViewCount(TopicDTO topic, int viewCount) {
+        return new TopicDTO(
+                topic.getId(),
+                topic.getTitle(),
+                topic.getContent(),
+                topic.getContentHtml(),
+                topic.getCreatedAt(),
+                topic.getUpdatedAt(),
+                viewCount,
+                topic.getReplyCount(),
+                topic.getAuthor(),
+                topic.getNode()
+        );
+    }
+
+    private void onInvalidation(Message message) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+        Long topicId = Long.valueOf(parts[2]);
+        if ("topic".equals(parts[1])) {
+            topicCache.remove(topicId);
+        } else if ("replies".equals(parts[1])) {
+            evictLocalReplyPages(topicId);
+        }
+    }
+
+    private void evictLocalReplyPages(Long topicId) {
+        String prefix = topicId + ":";
+        replyPageCache.removeIf(key -> key.startsWith(prefix));
+    }
+
+    private void publish(String type, Long topicId) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId + "|" + type + "|" + topicId);
+        } catch (Exception e) {
+            log.warn("广播缓存失效消息失败: {}", e.getMessage());
+        }
+    }
+
+    private <T> T readRemote(String key, Class<T> type) {
+        try {
+            Object value = redisTemplate.opsForValue().get(key);
+            return type.isInstance(value) ? type.cast(value) : null;
+        } catch (Exception e) {
+            log.warn("读取Redis缓存 {} 失败: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRemote(String key, Object value) {
+        try {
+            redisTemplate.opsForValue().set(key, value, remoteTtlMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("写入Redis缓存 {} 失败: {}", key, e.getMessage());
+        }
+    }
+
+    private void deleteRemote(String key) {
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("删除Redis缓存 {} 失败: {}", key, e.getMessage());
+        }
+    }
+
+    private CacheStatsDTO toStats(String name, BoundedCache<?, ?> cache, LongAdder remoteHits, LongAdder remoteMisses) {
+        return new CacheStatsDTO(
+                name,
+                cache.size(),
+                cache.getMaxSize(),
+                cache.getHits(),
+                cache.getMisses(),
+                cache.getEvictions(),
+                remoteHits.sum(),
+                remoteMisses.sum()
+        );
+    }
+}
@@ -1,24 +1,34 @@
 package com.example.v2exclone.service;
 
+import com.example.v2exclone.common.CursorPage;
+import com.example.v2exclone.common.PageCursor;
 import com.example.v2exclone.dto.TopicDTO;
 import com.example.v2exclone.dto.UserDTO;
 import com.example.v2exclone.dto.NodeDTO;
+import com.example.v2exclone.dto.TopicFeedRow;
 import com.example.v2exclone.entity.Topic;
 import com.example.v2exclone.entity.User;
 import com.example.v2exclone.entity.Node;
 import com.example.v2exclone.repository.TopicRepository;
 import com.example.v2exclone.repository.UserRepository;
 import com.example.v2exclone.repository.NodeRepository;
-import com.example.v2exclone.repository.ReplyRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,29 +45,144 @@ public class TopicService {
     private NodeRepository nodeRepository;
 
     @Autowired
-    private ReplyRepository replyRepository;
+    private ViewCountService viewCountService;
+
+    @Autowired
+    private HotTopicRankingService hotTopicRankingService;
+
+    @Autowired
+    private TopicCacheService topicCacheService;
+
+    @Autowired
+    private NodeService nodeService;
+
+    @Autowired
+    private CommunityStatsService communityStatsService;
+
+    @Autowired
+    private ActiveMemberService activeMemberService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private ContentRenderService contentRenderService;
+
+    @Autowired
+    private FeedVersionService feedVersionService;
     
+    @Transactional(readOnly = true)
     public Page<TopicDTO> getAllTopics(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Topic> topics = topicRepository.findAllByOrderByCreatedAtDesc(pageable);
-        return topics.map(this::convertToDTO);
+        List<TopicFeedRow> rows = topicRepository.findFeed(pageable);
+        return toPage(rows, pageable, topicRepository::count);
     }
     
+    /**
+     * 游标分页获取最新主题，翻页深度不影响查询耗时
+     * @param cursor 上一次返回的游标，为空表示第一页
+     * @param size 每页大小
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TopicDTO> getTopicsByCursor(String cursor, int size) {
+        PageCursor position = PageCursor.decode(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<TopicFeedRow> rows;
+        if (position == null) {
+            rows = topicRepository.findFeedHead(limit);
+        } else if (position.backward()) {
+            rows = topicRepository.findFeedAfter(position.createdAt(), position.id(), limit);
+        } else {
+            rows = topicRepository.findFeedBefore(position.createdAt(), position.id(), limit);
+        }
+        return CursorPage.of(rows, size, position, TopicFeedRow::createdAt, TopicFeedRow::id, this::convertToDTO);
+    }
+    
+    @Transactional(readOnly = true)
     public List<TopicDTO> getRecentTopics() {
-        List<Topic> topics = topicRepository.findTop10ByOrderByCreatedAtDesc();
-        return topics.stream().map(this::convertToDTO).collect(Collectors.toList());
+        List<TopicFeedRow> rows = topicRepository.findFeed(PageRequest.of(0, 10));
+        return rows.stream().map(this::convertToDTO).collect(Collectors.toList());
+    }
+
+    /**
+     * 获取热门主题，排行来自内存/Redis，数据库只按主键取这几条
+     * @param limit 数量
+     */
+    @Transactional(readOnly = true)
+    public List<TopicDTO> getHotTopics(int limit) {
+        return getTopicsByIds(hotTopicRankingService.getHotTopicIds(limit));
+    }
+
+    /**
+     * 全文搜索主题，按相关度排序
+     * @param nodeIds 只搜索这些节点，为空时搜索全部
+     */
+    @Transactional(readOnly = true)
+    public Page<TopicDTO> searchTopics(String query, Set<Long> nodeIds, int page, int size) {
+        Page<Long> hits = searchIndexService.search(query, nodeIds, page, size);
+        return new PageImpl<>(getTopicsByIds(hits.getContent()), hits.getPageable(), hits.getTotalElements());
+    }
+
+    /**
+     * 按给定ID的顺序批量取主题，已不存在的主题被跳过
+     */
+    private List<TopicDTO> getTopicsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, TopicFeedRow> rows = topicRepository.findFeedByIds(ids).stream()
+                .collect(Collectors.toMap(TopicFeedRow::id, Function.identity()));
+        return ids.stream()
+                .map(rows::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public Page<TopicDTO> getTopicsByNode(Long nodeId, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        List<TopicFeedRow> rows = topicRepository.findFeedByNode(nodeId, pageable);
+        return toPage(rows, pageable, () -> topicRepository.countByNodeId(nodeId));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<TopicDTO> getTopicsByAuthor(Long authorId, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        List<TopicFeedRow> rows = topicRepository.findFeedByAuthor(authorId, pageable);
+        return toPage(rows, pageable, () -> topicRepository.countByAuthorId(authorId));
     }
     
+    /**
+     * 获取主题详情，优先走两级缓存，缓存命中时不占用数据库连接
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<TopicDTO> getTopicById(Long id) {
-        Optional<Topic> topic = topicRepository.findById(id);
+        Optional<TopicDTO> topic = getCachedTopic(id);
         if (topic.isPresent()) {
-            Topic t = topic.get();
-            t.setViewCount(t.getViewCount() + 1);
-            topicRepository.save(t);
-            return Optional.of(convertToDTO(t));
+            recordView(id);
+            int persistedViews = topicCacheService.getViewCount(id, () -> topicRepository.findViewCountById(id));
+            return Optional.of(withPendingViews(TopicCacheService.withViewCount(topic.get(), persistedViews)));
         }
         return Optional.empty();
     }
+
+    /**
+     * 从两级缓存读取主题，不计浏览，浏览数可能已过时（用于计算条件请求的校验值）
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<TopicDTO> getCachedTopic(Long id) {
+        return topicCacheService.getTopic(id, () -> topicRepository.findById(id).map(this::convertToDTO));
+    }
+
+    /**
+     * 记录一次浏览，浏览数只记入内存，由ViewCountService定时批量写回
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void recordView(Long id) {
+        viewCountService.recordView(id);
+        hotTopicRankingService.recordView(id);
+    }
     
     public TopicDTO createTopic(String title, String content, Long authorId, Long nodeId) {
         Optional<User> author = userRepository.findById(authorId);
@@ -67,10 +192,18 @@ public class TopicService {
             Topic topic = Topic.builder()
                     .title(title)
                     .content(content)
+                    .contentHtml(contentRenderService.render(content))
+                    .renderVersion(contentRenderService.version())
                     .author(author.get())
                     .node(node.get())
                     .build();
             Topic savedTopic = topicRepository.save(topic);
+            hotTopicRankingService.recordNewTopic(savedTopic.getId());
+            nodeService.onTopicCreated(nodeId);
+            communityStatsService.onTopicCreated();
+            activeMemberService.onTopicCreated(author.get(), savedTopic.getCreatedAt());
+            searchIndexService.onTopicChanged(savedTopic.getId());
+            feedVersionService.onFeedChanged();
             return convertToDTO(savedTopic);
         }
         throw new RuntimeException("Author or Node not found");
@@ -82,26 +215,82 @@ public class TopicService {
 
         if (topicOptional.isPresent() && nodeOptional.isPresent()) {
             Topic topic = topicOptional.get();
+            Long previousNodeId = topic.getNode().getId();
             topic.setTitle(title);
             topic.setContent(content);
+            topic.setContentHtml(contentRenderService.render(content));
+            topic.setRenderVersion(contentRenderService.version());
             topic.setNode(nodeOptional.get());
             topic.setUpdatedAt(java.time.LocalDateTime.now());
 
             Topic savedTopic = topicRepository.save(topic);
-            return convertToDTO(savedTopic);
+            topicCacheService.evictTopic(topicId);
+            nodeService.onTopicMoved(previousNodeId, nodeId);
+            searchIndexService.onTopicChanged(topicId);
+            feedVersionService.onFeedChanged();
+            return withPendingViews(convertToDTO(savedTopic));
         }
         throw new RuntimeException("Topic or Node not found");
     }
 
-    public void incrementReplyCount(Long topicId) {
-        Optional<Topic> topicOptional = topicRepository.findById(topicId);
-        if (topicOptional.isPresent()) {
-            Topic topic = topicOptional.get();
-            topic.setReplyCount(topic.getReplyCount() + 1);
-            topicRepository.save(topic);
-        }
+    /**
+     * 在已持久化的浏览数上叠加尚未写回的浏览数
+     */
+    private TopicDTO withPendingViews(TopicDTO topic) {
+        long pending = viewCountService.getPendingViews(topic.getId());
+        return TopicCacheService.withViewCount(topic, topic.getViewCount() + (int) pending);
     }
     
+    /**
+     * 用投影行组装分页结果，总数取自窗口函数
+     * 只有请求的页超出范围（没有任何行）时才回退到单独的COUNT查询
+     */
+    private Page<TopicDTO> toPage(List<TopicFeedRow> rows, Pageable pageable, LongSupplier fallbackCount) {
+        long total;
+        if (!rows.isEmpty()) {
+            total = rows.get(0).totalCount();
+        } else {
+            total = pageable.getPageNumber() > 0 ? fallbackCount.getAsLong() : 0;
+        }
+        List<TopicDTO> content = rows.stream().map(this::convertToDTO).collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private TopicDTO convertToDTO(TopicFeedRow row) {
+        UserDTO authorDTO = new UserDTO(
+            row.authorId(),
+            row.authorUsername(),
+            row.authorEmail(),
+            row.authorAvatar(),
+            row.authorBio(),
+            row.authorCreatedAt()
+        );
+
+        NodeDTO nodeDTO = new NodeDTO(
+            row.nodeId(),
+            row.nodeName(),
+            row.nodeSlug(),
+            row.nodeDescription(),
+            row.nodeCreatedAt()
+        );
+
+        return new TopicDTO(
+            row.id(),
+            row.title(),
+            row.content(),
+            contentRenderService.htmlOf(row.contentHtml(), row.renderVersion(), row.content()),
+            row.createdAt(),
+            row.updatedAt(),
+            row.viewCount() + (int) viewCountService.getPendingViews(row.id()),
+            row.replyCount(),
+            authorDTO,
+            nodeDTO
+        );
+    }
+
+    /**
+     * 实体转DTO，浏览数只包含已写回数据库的部分（缓存中保存的就是这个值）
+     */
     private TopicDTO convertToDTO(Topic topic) {
         UserDTO authorDTO = new UserDTO(
             topic.getAuthor().getId(),
@@ -120,17 +309,15 @@ public class TopicService {
             topic.getNode().getCreatedAt()
         );
 
-        // 获取真实的回复数量
-        long actualReplyCount = replyRepository.countByTopic(topic);
-
         return new TopicDTO(
             topic.getId(),
             topic.getTitle(),
             topic.getContent(),
+            contentRenderService.htmlOf(topic.getContentHtml(), topic.getRenderVersion(), topic.getContent()),
             topic.getCreatedAt(),
             topic.getUpdatedAt(),
             topic.getViewCount(),
-            (int) actualReplyCount,  // 使用真实的回复数
+            topic.getReplyCount(),
             authorDTO,
             nodeDTO
         );
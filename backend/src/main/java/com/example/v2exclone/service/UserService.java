@@ -1,15 +1,22 @@
 package com.example.v2exclone.service;
 
+import com.example.v2exclone.common.BoundedCache;
 import com.example.v2exclone.dto.OAuth2UserInfo;
+import com.example.v2exclone.dto.UserDTO;
 import com.example.v2exclone.entity.AuthProvider;
 import com.example.v2exclone.entity.User;
 import com.example.v2exclone.repository.UserRepository;
 import com.example.v2exclone.util.OAuth2UserInfoFactory;
+import com.example.v2exclone.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -19,6 +26,31 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CommunityStatsService communityStatsService;
+
+    @Autowired
+    private ActiveMemberService activeMemberService;
+
+    @Autowired
+    private FeedVersionService feedVersionService;
+
+    @Value("${app.cache.user-summary.max-size:10000}")
+    private int userSummaryMaxSize;
+
+    @Value("${app.cache.local-ttl:60000}")
+    private long localTtlMillis;
+
+    /**
+     * 用户摘要缓存，用户资料变更时失效
+     */
+    private BoundedCache<Long, UserDTO> userSummaries;
+
+    @PostConstruct
+    public void init() {
+        userSummaries = new BoundedCache<>(userSummaryMaxSize, localTtlMillis);
+    }
+
     public User processOAuth2User(String registrationId, Map<String, Object> attributes) {
         OAuth2UserInfo oAuth2UserInfo = OAuth2UserInfoFactory.getOAuth2UserInfo(registrationId, attributes);
         
@@ -57,10 +89,15 @@ public class UserService {
             user.setGithubId(oAuth2UserInfo.getId());
         }
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        communityStatsService.onMemberRegistered();
+        return savedUser;
     }
 
     private User updateExistingUser(User existingUser, OAuth2UserInfo oAuth2UserInfo) {
+        // 列表中展示作者的用户名和头像，二者变化时列表的数据版本也要变化；每次登录都会走这里，资料没变时不递增
+        boolean profileChanged = !Objects.equals(existingUser.getUsername(), oAuth2UserInfo.getName())
+                || !Objects.equals(existingUser.getAvatar(), oAuth2UserInfo.getImageUrl());
         existingUser.setUsername(oAuth2UserInfo.getName());
         existingUser.setAvatar(oAuth2UserInfo.getImageUrl());
         
@@ -68,7 +105,28 @@ public class UserService {
             existingUser.setGithubId(oAuth2UserInfo.getId());
         }
 
-        return userRepository.save(existingUser);
+        User savedUser = userRepository.save(existingUser);
+        activeMemberService.onProfileUpdated(savedUser);
+        TransactionUtils.afterCommit(() -> userSummaries.remove(savedUser.getId()));
+        if (profileChanged) {
+            feedVersionService.onFeedChanged();
+        }
+        return savedUser;
+    }
+
+    /**
+     * 获取用户摘要，优先读缓存，缓存命中时不占用数据库连接
+     * @param id 用户ID
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<UserDTO> getUserSummary(Long id) {
+        UserDTO cached = userSummaries.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<UserDTO> loaded = userRepository.findById(id).map(this::convertToDTO);
+        loaded.ifPresent(user -> userSummaries.put(id, user));
+        return loaded;
     }
 
     public Optional<User> findById(Long id) {
@@ -82,4 +140,15 @@ public class UserService {
     public Optional<User> findByUsername(String username) {
         return userRepository.findByUsername(username);
     }
+
+    private UserDTO convertToDTO(User user) {
+        return new UserDTO(
+            user.getId(),
+            user.getUsername(),
+            user.getEmail(),
+            user.getAvatar(),
+            user.getBio(),
+            user.getCreatedAt()
+        );
+    }
 }
@@ -0,0 +1,132 @@
+package com.example.v2exclone.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Array;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 主题浏览数聚合服务
+ * 浏览数先累加到内存计数表中，再由定时任务批量写回数据库，
+ * 主题详情接口因此不再产生任何写操作和行锁
+ */
+@Slf4j
+@Service
+public class ViewCountService {
+
+    private static final String FLUSH_SQL = """
+            UPDATE topics t SET view_count = t.view_count + v.delta
+            FROM (SELECT unnest(?) AS id, unnest(?) AS delta) v
+            WHERE t.id = v.id
+            """;
+
+    /**
+     * 待写回的浏览数增量，key为主题ID
+     * 每个主题一个LongAdder，热门主题的并发浏览分散到多个单元累加，不会争抢同一个桶锁
+     */
+    private final Map<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TopicCacheService topicCacheService;
+
+    /**
+     * 记录一次浏览
+     * @param topicId 主题ID
+     */
+    public void recordView(Long topicId) {
+        LongAdder views = pendingViews.get(topicId);
+        if (views == null) {
+            views = pendingViews.computeIfAbsent(topicId, id -> new LongAdder());
+        }
+        views.increment();
+    }
+
+    /**
+     * 获取尚未写回数据库的浏览数
+     * @param topicId 主题ID
+     * @return 待写回的浏览数
+     */
+    public long getPendingViews(Long topicId) {
+        LongAdder views = pendingViews.get(topicId);
+        return views != null ? views.sum() : 0;
+    }
+
+    /**
+     * 定时把累计的增量一次性写回数据库（与关闭时的写回互斥，同一增量不会被扣除两次）
+     */
+    @Scheduled(fixedDelayString = "${app.view-count.flush-interval:5000}")
+    public synchronized void flush() {
+        if (pendingViews.isEmpty()) {
+            return;
+        }
+
+        // 按ID排序后写入，避免多实例同时刷新时互相死锁
+        // 增量只读取不清零，提交之前读取方看到的仍是数据库旧值加上完整增量
+        TreeMap<Long, Long> batch = new TreeMap<>();
+        for (Map.Entry<Long, LongAdder> entry : pendingViews.entrySet()) {
+            long delta = entry.getValue().sum();
+            if (delta > 0) {
+                batch.put(entry.getKey(), delta);
+            } else {
+                prune(entry.getKey(), entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.update(FLUSH_SQL, ps -> {
+                Array ids = ps.getConnection().createArrayOf("bigint", batch.keySet().toArray());
+                Array deltas = ps.getConnection().createArrayOf("bigint", batch.values().toArray());
+                ps.setArray(1, ids);
+                ps.setArray(2, deltas);
+            });
+        } catch (DataAccessException e) {
+            // 增量没有扣除，下一轮刷新时连同新增的浏览一起重试
+            log.error("写回浏览数失败，{} 个主题的增量将在下次重试", batch.size(), e);
+            return;
+        }
+        // 已提交，扣除写回的部分；写回期间新增的浏览留到下一轮
+        batch.forEach((topicId, delta) -> pendingViews.get(topicId).add(-delta));
+        log.debug("写回 {} 个主题的浏览数", batch.size());
+        topicCacheService.onViewsFlushed(batch.keySet());
+    }
+
+    /**
+     * 移除上一轮写回后再没有浏览的主题，避免计数表无限增长
+     * 移除后如果有并发的浏览已经累加到这个计数器上，把它们放回计数表
+     */
+    private void prune(Long topicId, LongAdder views) {
+        if (pendingViews.remove(topicId, views)) {
+            long late = views.sumThenReset();
+            if (late != 0) {
+                pendingViews.computeIfAbsent(topicId, id -> new LongAdder()).add(late);
+            }
+        }
+    }
+
+    /**
+     * 应用关闭前把剩余的增量全部写回
+     */
+    @PreDestroy
+    public void drain() {
+        flush();
+        long unflushed = pendingViews.values().stream().filter(views -> views.sum() > 0).count();
+        if (unflushed > 0) {
+            log.warn("关闭时仍有 {} 个主题的浏览数未能写回", unflushed);
+        }
+    }
+}
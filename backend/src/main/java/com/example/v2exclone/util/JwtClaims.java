@@ -0,0 +1,31 @@
+package com.example.v2exclone.util;
+
+/**
+ * 已验证签名的JWT声明
+ * @param userId 用户ID（subject）
+ * @param username 用户名
+ * @param issuedAt 签发时间（毫秒）
+ * @param expiresAt 过期时间（毫秒）
+ * @param epoch 签发时用户的token版本，小于用户当前版本的token视为已吊销
+ * @param tokenHash token的SHA-256摘要，用作黑名单的键，避免在Redis中保存完整token
+ */
+public record JwtClaims(
+        Long userId,
+        String username,
+        long issuedAt,
+        long expiresAt,
+        long epoch,
+        String tokenHash
+) {
+
+    public boolean isExpired() {
+        return expiresAt <= System.currentTimeMillis();
+    }
+
+    /**
+     * 剩余有效时间（毫秒）
+     */
+    public long remainingMillis() {
+        return Math.max(0, expiresAt - System.currentTimeMillis());
+    }
+}
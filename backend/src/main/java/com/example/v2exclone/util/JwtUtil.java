@@ -1,77 +1,122 @@
 package com.example.v2exclone.util;
 
+import com.example.v2exclone.common.BoundedCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.Optional;
 
+/**
+ * JWT工具
+ * 签名密钥和解析器只在启动时创建一次；验签通过的token以token字符串为键缓存到过期为止，
+ * 同一个token在有效期内只做一次HS512验签、声明解析和摘要计算，命中时只是一次无全局锁的缓存读取
+ */
 @Component
 public class JwtUtil {
+
+    private static final String EPOCH_CLAIM = "ep";
     
     @Value("${jwt.secret}")
     private String jwtSecret;
     
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
-    
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    private SecretKey signingKey;
+
+    private JwtParser parser;
+
+    private BoundedCache<String, JwtClaims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        // JwtParser是不可变的，可以在线程间共享
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        verifiedTokens = new BoundedCache<>(verifiedCacheSize, 0);
     }
     
-    public String generateToken(Long userId, String username) {
+    /**
+     * 签发token
+     * @param userId 用户ID
+     * @param username 用户名
+     * @param epoch 用户当前的token版本
+     */
+    public String generateToken(Long userId, String username, long epoch) {
         Date expiryDate = new Date(System.currentTimeMillis() + jwtExpirationMs);
         
         return Jwts.builder()
                 .setSubject(userId.toString())
                 .claim("username", username)
+                .claim(EPOCH_CLAIM, epoch)
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
-    
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return Long.parseLong(claims.getSubject());
-    }
-    
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        
-        return claims.get("username", String.class);
-    }
-    
-    public Date getExpirationFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
 
-        return claims.getExpiration();
+    /**
+     * 验证并解析token，所有需要读取token内容的地方都应通过这里
+     * @param token JWT token
+     * @return 验签通过且未过期时返回声明，否则为空
+     */
+    public Optional<JwtClaims> parseToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+
+        JwtClaims cached = verifiedTokens.get(token);
+        if (cached != null && !cached.isExpired()) {
+            return Optional.of(cached);
+        }
+
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date issuedAt = claims.getIssuedAt();
+            Number epoch = claims.get(EPOCH_CLAIM, Number.class);
+            JwtClaims verified = new JwtClaims(
+                    Long.parseLong(claims.getSubject()),
+                    claims.get("username", String.class),
+                    issuedAt != null ? issuedAt.getTime() : 0,
+                    claims.getExpiration().getTime(),
+                    epoch != null ? epoch.longValue() : 0,
+                    hashToken(token)
+            );
+            // 缓存条目与token同时过期
+            verifiedTokens.put(token, verified, verified.remainingMillis());
+            return Optional.of(verified);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
     }
 
     public boolean validateToken(String token) {
+        return parseToken(token).isPresent();
+    }
+
+    /**
+     * 计算token的SHA-256摘要（十六进制）
+     */
+    public static String hashToken(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
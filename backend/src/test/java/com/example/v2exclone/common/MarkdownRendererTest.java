@@ -0,0 +1,196 @@
+package com.example.v2exclone.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 渲染结果由前端直接插入页面，这里用常见的XSS载荷验证输出本身是安全的：
+ * 危险协议和站外跳转不生成链接，任何输入都不能跳出属性值或生成白名单以外的标签
+ */
+class MarkdownRendererTest {
+
+    private static final Pattern TAG = Pattern.compile("<(/?)([a-zA-Z0-9]+)([^>]*)>");
+
+    private static final Pattern ATTRIBUTE = Pattern.compile("\\s([a-z-]+)=\"([^\"]*)\"");
+
+    private static final Pattern ALLOWED_TAGS = Pattern.compile(
+            "p|br|h[1-6]|blockquote|ul|ol|li|pre|code|hr|strong|em|del|a|img");
+
+    private static final Pattern ALLOWED_ATTRIBUTES = Pattern.compile("href|src|alt|rel|target|loading|class|start");
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "[x](javascript:alert(1))",
+            "[x](JavaScript:alert(1))",
+            "[x](  javascript:alert(1))",
+            "[x](java\tscript:alert(1))",
+            "[x](data:text/html;base64,PHNjcmlwdD5hbGVydCgxKTwvc2NyaXB0Pg==)",
+            "[x](vbscript:msgbox(1))",
+            "[x](//evil.com)",
+            "[x](/\\evil.com)",
+            "[x](/\\/evil.com)",
+            "[x](\\\\evil.com)",
+            "[x](https:\\\\evil.com)",
+            "[x](evil.com)",
+            "[x](ftp://evil.com)"
+    })
+    void rejectsUnsafeLinkTargets(String markdown) {
+        String html = MarkdownRenderer.render(markdown);
+
+        assertThat(html).doesNotContain("<a ");
+        assertSafe(html);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "![x](javascript:alert(1))",
+            "![x](data:image/svg+xml;base64,PHN2ZyBvbmxvYWQ9YWxlcnQoMSk+)",
+            "![x](//evil.com/p.png)",
+            "![x](/\\evil.com/p.png)",
+            "![x](mailto:a@example.com)"
+    })
+    void rejectsUnsafeImageSources(String markdown) {
+        String html = MarkdownRenderer.render(markdown);
+
+        assertThat(html).doesNotContain("<img");
+        assertSafe(html);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "[x](https://example.com/\" onmouseover=\"alert(1))",
+            "[x](https://example.com/\"onmouseover=\"alert(1))",
+            "[x](https://example.com/'onmouseover='alert(1))",
+            "[x](https://example.com/><script>alert(1)</script>)",
+            "![\" onerror=\"alert(1)](https://example.com/p.png)",
+            "![x](https://example.com/p.png\"onerror=\"alert(1))",
+            "[\"><script>alert(1)</script>](https://example.com)",
+            "https://example.com/\"onmouseover=\"alert(1)",
+            "https://example.com/'onmouseover='alert(1)",
+            "https://example.com/<script>alert(1)</script>",
+            "https://example.com/`onmouseover=alert(1)"
+    })
+    void attributeValuesCannotBeBrokenOutOf(String markdown) {
+        assertSafe(MarkdownRenderer.render(markdown));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "<script>alert(1)</script>",
+            "<img src=x onerror=alert(1)>",
+            "<a href=\"javascript:alert(1)\">x</a>",
+            "<svg onload=alert(1)>",
+            "<iframe src=\"https://evil.com\"></iframe>",
+            "**<script>alert(1)</script>**",
+            "> <script>alert(1)</script>",
+            "- <img src=x onerror=alert(1)>",
+            "# <script>alert(1)</script>",
+            "`<script>alert(1)</script>`",
+            "&lt;script&gt;alert(1)&lt;/script&gt;"
+    })
+    void escapesRawHtml(String markdown) {
+        String html = MarkdownRenderer.render(markdown);
+
+        assertThat(html).doesNotContain("<script", "<img src=x", "<svg", "<iframe", "<a href=\"javascript");
+        assertSafe(html);
+    }
+
+    @Test
+    void escapesHtmlInsideCodeFences() {
+        String html = MarkdownRenderer.render("```html\n<script>alert(1)</script>\n\" onload='x'\n```");
+
+        assertThat(html).contains("&lt;script&gt;alert(1)&lt;/script&gt;")
+                .doesNotContain("<script");
+        assertSafe(html);
+    }
+
+    @Test
+    void fenceLanguageCannotInjectAttributes() {
+        String html = MarkdownRenderer.render("```js\"onmouseover=\"alert(1)\ncode\n```");
+
+        assertSafe(html);
+    }
+
+    @Test
+    void unclosedFenceStaysEscaped() {
+        String html = MarkdownRenderer.render("```\n<script>alert(1)</script>");
+
+        assertThat(html).doesNotContain("<script");
+        assertSafe(html);
+    }
+
+    @Test
+    void autolinkStopsAtQuotesAndAngleBrackets() {
+        String html = MarkdownRenderer.render("看 https://example.com/a\"b 和 https://example.com/c<d");
+
+        assertThat(html).contains("href=\"https://example.com/a\"", "href=\"https://example.com/c\"");
+        assertSafe(html);
+    }
+
+    @Test
+    void autolinkStopsAtBackslash() {
+        String html = MarkdownRenderer.render("https://example.com\\@evil.com");
+
+        assertThat(html).contains("href=\"https://example.com\"");
+        assertSafe(html);
+    }
+
+    @Test
+    void autolinkOnlyMatchesHttp() {
+        String html = MarkdownRenderer.render("javascript://example.com/%0Aalert(1)");
+
+        assertThat(html).doesNotContain("<a ");
+    }
+
+    @Test
+    void rendersSafeLinks() {
+        assertThat(MarkdownRenderer.render("[官网](https://example.com/a?b=1&c=2)"))
+                .contains("<a href=\"https://example.com/a?b=1&amp;c=2\" rel=\"nofollow noopener noreferrer\"");
+        assertThat(MarkdownRenderer.render("[主题](/t/1)")).contains("<a href=\"/t/1\"");
+        assertThat(MarkdownRenderer.render("[邮件](mailto:umaru@example.com)"))
+                .contains("<a href=\"mailto:umaru@example.com\"");
+        assertThat(MarkdownRenderer.render("![图](https://example.com/p.png)"))
+                .contains("<img src=\"https://example.com/p.png\" alt=\"图\"");
+        assertThat(MarkdownRenderer.render("访问 https://example.com/path."))
+                .contains("<a href=\"https://example.com/path\"");
+    }
+
+    /**
+     * 输出中只能出现白名单内的标签和属性，链接地址只能是http(s)、mailto或站内路径
+     */
+    private static void assertSafe(String html) {
+        Matcher tag = TAG.matcher(html);
+        while (tag.find()) {
+            assertThat(tag.group(2)).as("标签 %s", tag.group()).matches(ALLOWED_TAGS);
+            String attributes = tag.group(3);
+            Matcher attribute = ATTRIBUTE.matcher(attributes);
+            int consumed = 0;
+            while (attribute.find()) {
+                assertThat(attributes.substring(consumed, attribute.start())).as("标签 %s", tag.group()).isBlank();
+                assertThat(attribute.group(1)).as("标签 %s", tag.group()).matches(ALLOWED_ATTRIBUTES);
+                if (attribute.group(1).equals("href") || attribute.group(1).equals("src")) {
+                    assertSafeUrl(attribute.group(2));
+                }
+                consumed = attribute.end();
+            }
+            assertThat(attributes.substring(consumed)).as("标签 %s", tag.group()).isBlank();
+        }
+        assertThat(TAG.matcher(html).replaceAll("")).doesNotContain("<", ">");
+    }
+
+    private static void assertSafeUrl(String url) {
+        String lower = url.toLowerCase(Locale.ROOT);
+        assertThat(url).doesNotContain("\\", "'", "`", " ");
+        assertThat(lower.startsWith("http://") || lower.startsWith("https://") || lower.startsWith("mailto:")
+                || (url.startsWith("/") && !url.startsWith("//")))
+                .as("地址 %s", url)
+                .isTrue();
+    }
+}
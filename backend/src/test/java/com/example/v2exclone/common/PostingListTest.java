@@ -0,0 +1,91 @@
+package com.example.v2exclone.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 倒排列表的编码、从字节恢复以及段合并
+ */
+class PostingListTest {
+
+    private record Posting(long docId, long generation, int frequency) {
+    }
+
+    @Test
+    void buildSortsAndCombinesSameDocumentAndGeneration() {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.add(5, 1, 2);
+        builder.add(3, 1, 1);
+        builder.add(5, 1, 3);
+        builder.add(5, 2, 1);
+
+        PostingList list = builder.build();
+
+        assertThat(list.size()).isEqualTo(3);
+        assertThat(postings(list)).containsExactly(
+                new Posting(3, 1, 1), new Posting(5, 1, 5), new Posting(5, 2, 1));
+    }
+
+    @Test
+    void restoresFromBytes() {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.add(1, 1, 1);
+        builder.add(127, 3, 128);
+        builder.add(1L << 40, Long.MAX_VALUE, Integer.MAX_VALUE);
+        PostingList list = builder.build();
+
+        PostingList restored = PostingList.of(list.bytes().clone(), list.size());
+
+        assertThat(postings(restored)).containsExactly(
+                new Posting(1, 1, 1), new Posting(127, 3, 128), new Posting(1L << 40, Long.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void smallValuesTakeOneByteEach() {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.add(10, 1, 1);
+        builder.add(20, 1, 2);
+
+        assertThat(builder.build().bytes()).hasSize(6);
+    }
+
+    @Test
+    void emptyList() {
+        PostingList list = new PostingList.Builder().build();
+
+        assertThat(list.size()).isZero();
+        assertThat(list.bytes()).isEmpty();
+        assertThat(postings(list)).isEmpty();
+    }
+
+    @Test
+    void mergeDropsStaleGenerationsAndCombinesSegments() {
+        PostingList.Builder first = new PostingList.Builder();
+        first.add(1, 1, 2);
+        first.add(4, 1, 1);
+        PostingList.Builder second = new PostingList.Builder();
+        second.add(1, 1, 3);
+        second.add(2, 1, 1);
+        second.add(4, 2, 5);
+        // 文档2已删除，文档4已重建为版本2
+        Map<Long, Long> generations = Map.of(1L, 1L, 4L, 2L);
+
+        PostingList merged = PostingList.merge(List.of(first.build(), second.build()),
+                docId -> generations.getOrDefault(docId, -1L));
+
+        assertThat(postings(merged)).containsExactly(new Posting(1, 1, 5), new Posting(4, 2, 5));
+        assertThat(postings(PostingList.of(merged.bytes(), merged.size())))
+                .containsExactly(new Posting(1, 1, 5), new Posting(4, 2, 5));
+    }
+
+    private static List<Posting> postings(PostingList list) {
+        List<Posting> result = new ArrayList<>();
+        list.forEach((docId, generation, frequency) -> result.add(new Posting(docId, generation, frequency)));
+        return result;
+    }
+}
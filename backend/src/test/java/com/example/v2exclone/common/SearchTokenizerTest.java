@@ -0,0 +1,61 @@
+package com.example.v2exclone.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 索引和查询共用同一套分词规则，这里固定各类文字的切分结果
+ */
+class SearchTokenizerTest {
+
+    @Test
+    void emptyInputHasNoTokens() {
+        assertThat(SearchTokenizer.tokenize(null)).isEmpty();
+        assertThat(SearchTokenizer.tokenize("")).isEmpty();
+        assertThat(SearchTokenizer.tokenize(" ，。!? ")).isEmpty();
+    }
+
+    @Test
+    void normalizesFullWidthAndCase() {
+        assertThat(SearchTokenizer.tokenize("Hello ＷＯＲＬＤ１２３")).containsExactly("hello", "world123");
+    }
+
+    @Test
+    void splitsCjkIntoBigrams() {
+        assertThat(SearchTokenizer.tokenize("干物妹小埋")).containsExactly("干物", "物妹", "妹小", "小埋");
+        assertThat(SearchTokenizer.tokenize("한국어")).containsExactly("한국", "국어");
+    }
+
+    @Test
+    void keepsSingleCjkCharacter() {
+        assertThat(SearchTokenizer.tokenize("我 爱")).containsExactly("我", "爱");
+    }
+
+    @Test
+    void prolongedSoundMarkStaysInsideKatakanaWord() {
+        assertThat(SearchTokenizer.tokenize("ゲームとコーラ"))
+                .containsExactly("ゲー", "ーム", "ムと", "とコ", "コー", "ーラ");
+    }
+
+    @Test
+    void splitsMixedScriptsInOrder() {
+        assertThat(SearchTokenizer.tokenize("Java编程abc")).containsExactly("java", "编程", "abc");
+    }
+
+    @Test
+    void emojiAndPunctuationSeparateWords() {
+        assertThat(SearchTokenizer.tokenize("vue😀react,spring-boot")).containsExactly("vue", "react", "spring", "boot");
+    }
+
+    @Test
+    void dropsOverlongWords() {
+        assertThat(SearchTokenizer.tokenize("a".repeat(40))).containsExactly("a".repeat(40));
+        assertThat(SearchTokenizer.tokenize("a".repeat(41) + " ok")).containsExactly("ok");
+    }
+
+    @Test
+    void keepsRepeatedTokens() {
+        assertThat(SearchTokenizer.tokenize("go go")).containsExactly("go", "go");
+    }
+}
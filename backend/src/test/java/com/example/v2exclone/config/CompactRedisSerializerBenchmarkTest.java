@@ -0,0 +1,83 @@
+package com.example.v2exclone.config;
+
+import com.example.v2exclone.dto.CommunityStatsDTO;
+import com.example.v2exclone.dto.ReplyDTO;
+import com.example.v2exclone.dto.ReplyPageDTO;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 紧凑二进制序列化器与GenericJackson2JsonRedisSerializer的对比
+ * 打印每种缓存值的字节数以及编码、解码吞吐量，吞吐量随机器变化，仅供参考。
+ * 默认构建不运行，使用 mvn test -Pbenchmark 运行；字节数的断言在CompactRedisSerializerTest中
+ */
+@Tag("benchmark")
+class CompactRedisSerializerBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 5_000;
+    private static final int MEASURED_ITERATIONS = 20_000;
+
+    private final RedisSerializer<Object> json = CompactRedisSerializerTest.jsonSerializer();
+
+    private final CompactRedisSerializer compact = new CompactRedisSerializer(json);
+
+    @Test
+    void compareSizeAndThroughput() {
+        List<ReplyDTO> replies = new ArrayList<>();
+        for (long i = 1; i <= 20; i++) {
+            replies.add(CompactRedisSerializerTest.reply(i));
+        }
+        compare("TopicDTO", CompactRedisSerializerTest.topic());
+        compare("ReplyDTO", CompactRedisSerializerTest.reply(1L));
+        compare("UserDTO", CompactRedisSerializerTest.user());
+        compare("CommunityStatsDTO", new CommunityStatsDTO(100_000L, 2_500_000L, 30_000_000L, 370L, 5_200L));
+        compare("ReplyPageDTO(20)", new ReplyPageDTO(replies, 250L));
+    }
+
+    private void compare(String name, Object value) {
+        byte[] jsonBytes = json.serialize(value);
+        byte[] compactBytes = compact.serialize(value);
+
+        Throughput jsonThroughput = measure(json, value);
+        Throughput compactThroughput = measure(compact, value);
+        System.out.printf("%-18s bytes json=%6d compact=%6d (%3d%%) | encode ops/s json=%9.0f compact=%9.0f"
+                        + " | decode ops/s json=%9.0f compact=%9.0f%n",
+                name, jsonBytes.length, compactBytes.length, compactBytes.length * 100 / jsonBytes.length,
+                jsonThroughput.encodePerSecond(), compactThroughput.encodePerSecond(),
+                jsonThroughput.decodePerSecond(), compactThroughput.decodePerSecond());
+    }
+
+    private Throughput measure(RedisSerializer<Object> serializer, Object value) {
+        byte[] bytes = serializer.serialize(value);
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += serializer.serialize(value).length;
+            sink += serializer.deserialize(bytes).hashCode();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += serializer.serialize(value).length;
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            sink += serializer.deserialize(bytes).hashCode();
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        // 使用计算结果，避免循环被优化掉
+        assertThat(sink).isNotZero();
+        return new Throughput(MEASURED_ITERATIONS * 1e9 / encodeNanos, MEASURED_ITERATIONS * 1e9 / decodeNanos);
+    }
+
+    private record Throughput(double encodePerSecond, double decodePerSecond) {
+    }
+}
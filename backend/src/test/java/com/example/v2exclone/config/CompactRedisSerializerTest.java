@@ -0,0 +1,158 @@
+package com.example.v2exclone.config;
+
+import com.example.v2exclone.dto.CommunityStatsDTO;
+import com.example.v2exclone.dto.NodeDTO;
+import com.example.v2exclone.dto.ReplyDTO;
+import com.example.v2exclone.dto.ReplyPageDTO;
+import com.example.v2exclone.dto.TopicDTO;
+import com.example.v2exclone.dto.UserDTO;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 紧凑二进制序列化器：常用DTO往返一致，能读取已有的JSON缓存，格式版本不一致时按未命中处理
+ */
+class CompactRedisSerializerTest {
+
+    private final RedisSerializer<Object> json = jsonSerializer();
+
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer(json);
+
+    /**
+     * 与RedisConfig中的JSON序列化器配置一致
+     */
+    static RedisSerializer<Object> jsonSerializer() {
+        return new GenericJackson2JsonRedisSerializer()
+                .configure(mapper -> mapper.registerModule(new JavaTimeModule()));
+    }
+
+    static UserDTO user() {
+        return new UserDTO(42L, "小埋", "umaru@example.com", "https://example.com/a.png", "干物妹",
+                LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123_456_789));
+    }
+
+    static NodeDTO node() {
+        return new NodeDTO(7L, "程序员", "programmer", "写代码的地方", LocalDateTime.of(2023, 12, 31, 23, 59), 1234L);
+    }
+
+    static TopicDTO topic() {
+        return new TopicDTO(1001L, "如何评价 Java 21 的虚拟线程？", "正文 **Markdown** 内容",
+                "<p>正文 <strong>Markdown</strong> 内容</p>",
+                LocalDateTime.of(2025, 1, 2, 3, 4, 5), LocalDateTime.of(2025, 1, 2, 6, 7, 8, 9),
+                350, 12, user(), node());
+    }
+
+    static ReplyDTO reply(long id) {
+        return new ReplyDTO(id, "回复内容 " + id, "<p>回复内容 " + id + "</p>",
+                LocalDateTime.of(2025, 1, 3, 10, 0, (int) (id % 60)), user(), 1001L);
+    }
+
+    @Test
+    void roundTripsTopic() {
+        assertRoundTrip(topic());
+    }
+
+    @Test
+    void roundTripsTopicWithNullFields() {
+        assertRoundTrip(new TopicDTO(1L, "标题", null, null, null, null, null, null, null, null));
+    }
+
+    @Test
+    void roundTripsReply() {
+        assertRoundTrip(reply(5L));
+    }
+
+    @Test
+    void roundTripsUser() {
+        assertRoundTrip(user());
+    }
+
+    @Test
+    void roundTripsNode() {
+        assertRoundTrip(node());
+    }
+
+    @Test
+    void roundTripsCommunityStats() {
+        assertRoundTrip(new CommunityStatsDTO(100_000L, 2_500_000L, 0L, 37L, -1L));
+    }
+
+    @Test
+    void roundTripsReplyPage() {
+        assertRoundTrip(new ReplyPageDTO(List.of(reply(1L), reply(2L), reply(3L)), 250L));
+    }
+
+    @Test
+    void binaryEncodingIsSmallerThanJson() {
+        List<ReplyDTO> replies = new ArrayList<>();
+        for (long i = 1; i <= 20; i++) {
+            replies.add(reply(i));
+        }
+        List<Object> values = List.of(topic(), reply(1L), user(), node(),
+                new CommunityStatsDTO(100_000L, 2_500_000L, 30_000_000L, 370L, 5_200L),
+                new ReplyPageDTO(replies, 250L));
+
+        assertThat(values).allSatisfy(value ->
+                assertThat(serializer.serialize(value).length).isLessThan(json.serialize(value).length));
+    }
+
+    @Test
+    void readsLegacyJsonEntries() {
+        byte[] legacyTopic = json.serialize(topic());
+        byte[] legacyStats = json.serialize(new CommunityStatsDTO(1L, 2L, 3L, 4L, 5L));
+
+        assertThat(serializer.deserialize(legacyTopic)).isEqualTo(topic());
+        assertThat(serializer.deserialize(legacyStats)).isEqualTo(new CommunityStatsDTO(1L, 2L, 3L, 4L, 5L));
+    }
+
+    @Test
+    void delegatesOtherTypesToJson() {
+        Map<String, Object> value = new HashMap<>(Map.of("key", "value"));
+
+        byte[] bytes = serializer.serialize(value);
+
+        assertThat(bytes).isEqualTo(json.serialize(value));
+        assertThat(serializer.deserialize(bytes)).isEqualTo(value);
+    }
+
+    @Test
+    void treatsOtherFormatVersionsAsMiss() {
+        byte[] current = serializer.serialize(new CommunityStatsDTO(1L, 2L, 3L, 4L, 5L));
+        // 头部为魔数、类型、格式版本（均为单字节zigzag变长整数），把版本改为1即为升级前写入的数据
+        byte[] v1 = current.clone();
+        v1[2] = zigzag(1);
+        byte[] future = current.clone();
+        future[2] = zigzag(3);
+
+        assertThat(current[2]).isEqualTo(zigzag(2));
+        assertThat(serializer.deserialize(v1)).isNull();
+        assertThat(serializer.deserialize(future)).isNull();
+    }
+
+    @Test
+    void nullAndEmptyAreMisses() {
+        assertThat(serializer.deserialize(null)).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+    }
+
+    private void assertRoundTrip(Object value) {
+        byte[] bytes = serializer.serialize(value);
+
+        assertThat(bytes[0]).isEqualTo((byte) 0xC7);
+        assertThat(serializer.deserialize(bytes)).isEqualTo(value);
+    }
+
+    private static byte zigzag(int value) {
+        return (byte) (value << 1);
+    }
+}
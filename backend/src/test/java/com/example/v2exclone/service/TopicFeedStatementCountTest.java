@@ -0,0 +1,179 @@
+package com.example.v2exclone.service;
+
+import com.example.v2exclone.dto.TopicDTO;
+import com.example.v2exclone.entity.Node;
+import com.example.v2exclone.entity.Topic;
+import com.example.v2exclone.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 主题列表每页的SQL语句数
+ * 列表由一条投影查询同时取出作者、节点和分页总数，翻页时不能退化为逐行懒加载或额外的COUNT
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(TopicService.class)
+class TopicFeedStatementCountTest {
+
+    private static final int TOPICS_PER_AUTHOR = 15;
+
+    @Autowired
+    private TopicService topicService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private ViewCountService viewCountService;
+
+    @MockBean
+    private HotTopicRankingService hotTopicRankingService;
+
+    @MockBean
+    private TopicCacheService topicCacheService;
+
+    @MockBean
+    private NodeService nodeService;
+
+    @MockBean
+    private CommunityStatsService communityStatsService;
+
+    @MockBean
+    private ActiveMemberService activeMemberService;
+
+    @MockBean
+    private SearchIndexService searchIndexService;
+
+    @MockBean
+    private ContentRenderService contentRenderService;
+
+    @MockBean
+    private FeedVersionService feedVersionService;
+
+    private Statistics statistics;
+
+    private Node node;
+
+    private User author;
+
+    private long nodeTopicCount;
+
+    @BeforeEach
+    void setUp() {
+        List<Node> nodes = List.of(persistNode("tech"), persistNode("life"));
+        List<User> authors = List.of(persistUser("alice"), persistUser("bob"));
+        for (int i = 0; i < TOPICS_PER_AUTHOR; i++) {
+            for (int a = 0; a < authors.size(); a++) {
+                entityManager.persist(Topic.builder()
+                        .title("测试主题 " + a + "-" + i)
+                        .content("内容 " + i)
+                        .author(authors.get(a))
+                        .node(nodes.get(i % nodes.size()))
+                        .build());
+                if (i % nodes.size() == 0) {
+                    nodeTopicCount++;
+                }
+            }
+        }
+        node = nodes.get(0);
+        author = authors.get(0);
+        entityManager.flush();
+        // 清空持久化上下文，确保作者和节点不会从一级缓存中取到
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void allTopicsPageUsesOneStatement() {
+        Page<TopicDTO> page = topicService.getAllTopics(0, 20);
+
+        assertThat(page.getContent()).hasSize(20);
+        assertThat(page.getTotalElements()).isEqualTo(2L * TOPICS_PER_AUTHOR);
+        assertAuthorsAndNodesLoaded(page.getContent());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void secondPageUsesOneStatement() {
+        Page<TopicDTO> page = topicService.getAllTopics(1, 20);
+
+        assertThat(page.getContent()).hasSize(2 * TOPICS_PER_AUTHOR - 20);
+        assertThat(page.getTotalElements()).isEqualTo(2L * TOPICS_PER_AUTHOR);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void recentTopicsUseOneStatement() {
+        List<TopicDTO> topics = topicService.getRecentTopics();
+
+        assertThat(topics).hasSize(10);
+        assertAuthorsAndNodesLoaded(topics);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void nodeFeedPageUsesOneStatement() {
+        Page<TopicDTO> page = topicService.getTopicsByNode(node.getId(), 0, 10);
+
+        assertThat(page.getContent()).hasSize(10)
+                .allSatisfy(topic -> assertThat(topic.getNode().getId()).isEqualTo(node.getId()));
+        assertThat(page.getTotalElements()).isEqualTo(nodeTopicCount);
+        assertAuthorsAndNodesLoaded(page.getContent());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void authorFeedPageUsesOneStatement() {
+        Page<TopicDTO> page = topicService.getTopicsByAuthor(author.getId(), 0, 10);
+
+        assertThat(page.getContent()).hasSize(10)
+                .allSatisfy(topic -> assertThat(topic.getAuthor().getId()).isEqualTo(author.getId()));
+        assertThat(page.getTotalElements()).isEqualTo(TOPICS_PER_AUTHOR);
+        assertAuthorsAndNodesLoaded(page.getContent());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private void assertAuthorsAndNodesLoaded(List<TopicDTO> topics) {
+        assertThat(topics).allSatisfy(topic -> {
+            assertThat(topic.getAuthor().getUsername()).isNotBlank();
+            assertThat(topic.getNode().getSlug()).isNotBlank();
+        });
+    }
+
+    private Node persistNode(String slug) {
+        return entityManager.persist(Node.builder()
+                .name("节点 " + slug)
+                .slug(slug)
+                .description("测试节点")
+                .build());
+    }
+
+    private User persistUser(String username) {
+        return entityManager.persist(User.builder()
+                .username(username)
+                .email(username + "@example.com")
+                .password("secret")
+                .build());
+    }
+}
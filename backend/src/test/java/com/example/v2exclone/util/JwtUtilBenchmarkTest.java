@@ -0,0 +1,138 @@
+package com.example.v2exclone.util;
+
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 每个请求的token校验开销对比：
+ * 不缓存（每次HS512验签并解析声明）、按SHA-256摘要查同步LRU缓存（此前的实现）、以token为键查并发缓存（当前实现）
+ * 分别用1个和多个线程测量吞吐量，结果随机器变化，仅供参考。默认构建不运行，使用 mvn test -Pbenchmark 运行
+ */
+@Tag("benchmark")
+class JwtUtilBenchmarkTest {
+
+    private static final String SECRET = "benchmark-jwt-secret-key-that-is-long-enough-for-hs512-signing-0123456789abcdef";
+
+    private static final int TOKEN_COUNT = 1_000;
+    private static final int WARMUP_ITERATIONS = 100_000;
+    private static final int MEASURED_ITERATIONS = 200_000;
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+
+    private final List<String> tokens = new ArrayList<>();
+
+    private JwtParser parser;
+
+    private LockedDigestCache lockedCache;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheSize", 10_000);
+        jwtUtil.init();
+        parser = Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes())).build();
+        lockedCache = new LockedDigestCache(10_000);
+
+        for (long i = 0; i < TOKEN_COUNT; i++) {
+            String token = jwtUtil.generateToken(i, "user" + i, 0);
+            tokens.add(token);
+            // 两种缓存都预先填满，测量的是命中路径
+            jwtUtil.parseToken(token);
+            lockedCache.put(JwtUtil.hashToken(token), token);
+        }
+    }
+
+    @Test
+    void compareVerifyThroughput() throws InterruptedException {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        System.out.printf("可用CPU %d%n", Runtime.getRuntime().availableProcessors());
+        for (int threadCount : new int[] {1, threads}) {
+            report("uncached HS512 verify", threadCount, token -> parser.parseClaimsJws(token).getBody().hashCode());
+            report("sha256 + synchronized LRU", threadCount, token -> lockedCache.get(JwtUtil.hashToken(token)).length());
+            report("token-keyed concurrent cache", threadCount, token -> jwtUtil.parseToken(token).orElseThrow().userId());
+        }
+    }
+
+    private void report(String name, int threadCount, ToLongFunction<String> verify) throws InterruptedException {
+        run(threadCount, WARMUP_ITERATIONS, verify);
+        long nanos = run(threadCount, MEASURED_ITERATIONS, verify);
+        double opsPerSecond = (double) threadCount * MEASURED_ITERATIONS * 1e9 / nanos;
+        System.out.printf("%-30s threads=%2d  %,12.0f ops/s  %,8.0f ns/op%n",
+                name, threadCount, opsPerSecond, 1e9 / opsPerSecond);
+    }
+
+    /**
+     * 每个线程轮流校验所有token，返回全部线程完成所用的时间
+     */
+    private long run(int threadCount, int iterations, ToLongFunction<String> verify) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        AtomicLong sink = new AtomicLong();
+        for (int t = 0; t < threadCount; t++) {
+            int offset = t * 97;
+            Thread thread = new Thread(() -> {
+                long local = 0;
+                try {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        local += verify.applyAsLong(tokens.get((offset + i) % TOKEN_COUNT));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    sink.addAndGet(local);
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        // 使用计算结果，避免循环被优化掉
+        assertThat(sink.get()).isNotZero();
+        return elapsed;
+    }
+
+    /**
+     * 此前的实现：以token摘要为键、所有读写共用一个锁的访问顺序LRU
+     */
+    private static final class LockedDigestCache {
+
+        private final Map<String, String> entries;
+
+        LockedDigestCache(int maxSize) {
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized String get(String key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(String key, String value) {
+            entries.put(key, value);
+        }
+    }
+}
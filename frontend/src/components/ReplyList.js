@@ -136,14 +136,22 @@ const ReplyList = ({ topicId }) => {
                   }}>
                     <strong>{reply.author.username}</strong> · {formatTimeAgo(reply.createdAt)}
                   </div>
-                  <div style={{ 
-                    fontSize: '14px', 
-                    lineHeight: '1.6',
-                    color: '#333',
-                    whiteSpace: 'pre-wrap'
-                  }}>
-                    {reply.content}
-                  </div>
+                  {reply.contentHtml ? (
+                    <div className="markdown-body" style={{
+                      fontSize: '14px',
+                      lineHeight: '1.6',
+                      color: '#333'
+                    }} dangerouslySetInnerHTML={{ __html: reply.contentHtml }} />
+                  ) : (
+                    <div style={{ 
+                      fontSize: '14px', 
+                      lineHeight: '1.6',
+                      color: '#333',
+                      whiteSpace: 'pre-wrap'
+                    }}>
+                      {reply.content}
+                    </div>
+                  )}
                 </div>
               </div>
             </div>
@@ -134,16 +134,27 @@ const TopicDetail = () => {
             </div>
             
             {topic.content && (
-              <div style={{
-                width: '100%',
-                padding: '15px',
-                backgroundColor: '#f8f8f8',
-                borderRadius: '3px',
-                lineHeight: '1.6',
-                whiteSpace: 'pre-wrap'
-              }}>
-                {topic.content}
-              </div>
+              // contentHtml由服务端渲染并保证安全，旧数据没有时退回显示原文
+              topic.contentHtml ? (
+                <div className="markdown-body" style={{
+                  width: '100%',
+                  padding: '15px',
+                  backgroundColor: '#f8f8f8',
+                  borderRadius: '3px',
+                  lineHeight: '1.6'
+                }} dangerouslySetInnerHTML={{ __html: topic.contentHtml }} />
+              ) : (
+                <div style={{
+                  width: '100%',
+                  padding: '15px',
+                  backgroundColor: '#f8f8f8',
+                  borderRadius: '3px',
+                  lineHeight: '1.6',
+                  whiteSpace: 'pre-wrap'
+                }}>
+                  {topic.content}
+                </div>
+              )
             )}
 
             {/* 回复列表和回复表单 */}